@@ -263,7 +263,10 @@ public class EventServiceImpl implements EventService {
                     .setMaxResult(maxResults)
                     .build();
 
-            List<RecommendedEventProto> recommendations = analyzerClient.getRecommendationsForUser(request);
+            List<RecommendedEventProto> recommendations;
+            try (Stream<RecommendedEventProto> stream = analyzerClient.streamRecommendationsForUser(request)) {
+                recommendations = stream.limit(maxResults).toList();
+            }
 
             List<Long> recommendedEventIds = recommendations.stream()
                     .map(RecommendedEventProto::getEventId)
@@ -0,0 +1,24 @@
+package ru.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties(prefix = "request-service.outbox")
+public class OutboxSettingsConfig {
+    // rows claimed and shipped to the collector as one batch call
+    private int batchSize = 500;
+    // relay workers; each claims its own rows, so they never ship the same action concurrently
+    private int workers = 2;
+    // pause after a partial batch or a failed one
+    private Duration pollInterval = Duration.ofMillis(500);
+    // how long claimed rows stay reserved for a worker; must outlast the collector call deadline
+    private Duration lease = Duration.ofSeconds(30);
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
@@ -1,6 +1,5 @@
 package ru.practicum.controller;
 
-import com.google.protobuf.Timestamp;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,12 +15,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import ru.practicum.dto.participation.ParticipationRequestDto;
-import ru.practicum.ewm.stats.proto.ActionTypeProto;
-import ru.practicum.ewm.stats.proto.UserActionProto;
 import ru.practicum.service.ParticipationRequestService;
-import ru.practicum.statsclient.client.CollectorClient;
 
-import java.time.Instant;
 import java.util.List;
 
 @Slf4j
@@ -31,7 +26,6 @@ import java.util.List;
 public class ParticipationRequestController {
 
     private final ParticipationRequestService requestService;
-    private final CollectorClient collectorClient;
 
     @PostMapping("/users/{userId}/requests")
     @ResponseStatus(HttpStatus.CREATED)
@@ -40,26 +34,7 @@ public class ParticipationRequestController {
 
         log.info("Пользователь {} запрашивает участие в событии {}", userId, eventId);
 
-        ParticipationRequestDto request = requestService.createRequest(userId, eventId);
-
-        try {
-            Instant now = Instant.now();
-            UserActionProto action = UserActionProto.newBuilder()
-                    .setUserId(userId)
-                    .setEventId(eventId)
-                    .setActionType(ActionTypeProto.ACTION_REGISTER)
-                    .setTimestamp(Timestamp.newBuilder()
-                            .setSeconds(now.getEpochSecond())
-                            .setNanos(now.getNano())
-                            .build())
-                    .build();
-            collectorClient.sendUserAction(action);
-            log.info("Отправлен REGISTER от пользователя {} для события {}", userId, eventId);
-        } catch (Exception e) {
-            log.warn("Не удалось отправить REGISTER: {}", e.getMessage());
-        }
-
-        return request;
+        return requestService.createRequest(userId, eventId);
     }
 
     @GetMapping("/users/{userId}/requests")
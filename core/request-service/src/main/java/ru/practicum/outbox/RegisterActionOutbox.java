@@ -0,0 +1,43 @@
+package ru.practicum.outbox;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "register_action_outbox")
+public class RegisterActionOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    @Column(name = "action_time", nullable = false)
+    private Instant actionTime;
+
+    @Column(name = "claimed_until")
+    private Instant claimedUntil;
+
+    public RegisterActionOutbox(Long userId, Long eventId, Instant actionTime) {
+        this.userId = userId;
+        this.eventId = eventId;
+        this.actionTime = actionTime;
+    }
+}
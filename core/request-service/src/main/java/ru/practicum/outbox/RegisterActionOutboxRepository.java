@@ -0,0 +1,27 @@
+package ru.practicum.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface RegisterActionOutboxRepository extends JpaRepository<RegisterActionOutbox, Long> {
+
+    // unleased or expired rows; rows another worker is leasing right now are skipped rather than waited for
+    @Query(value = """
+            SELECT *
+            FROM register_action_outbox
+            WHERE claimed_until IS NULL OR claimed_until < :now
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    List<RegisterActionOutbox> findClaimable(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE RegisterActionOutbox o SET o.claimedUntil = :claimedUntil WHERE o.id IN :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("claimedUntil") Instant claimedUntil);
+}
@@ -0,0 +1,147 @@
+package ru.practicum.outbox;
+
+import com.google.protobuf.Timestamp;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.config.OutboxSettingsConfig;
+import ru.practicum.ewm.stats.proto.ActionTypeProto;
+import ru.practicum.ewm.stats.proto.UserActionProto;
+import ru.practicum.statsclient.client.CollectorClient;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ships REGISTER actions from the outbox to the collector. Each worker leases a batch of rows in a short
+ * transaction, sends it in one call outside of any transaction and deletes the rows in a second one, so no
+ * connection or row lock is held while the collector is slow. A row is only gone once the collector
+ * acknowledged it. A failed send or a crash before the delete leaves the rows to be leased again: delivery is
+ * at least once.
+ */
+@Slf4j
+@Component
+public class RegisterActionRelay {
+
+    private final RegisterActionOutboxRepository outboxRepository;
+    private final CollectorClient collectorClient;
+    private final OutboxSettingsConfig settingsConfig;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+
+    private volatile boolean running = true;
+
+    public RegisterActionRelay(RegisterActionOutboxRepository outboxRepository,
+                               CollectorClient collectorClient,
+                               OutboxSettingsConfig settingsConfig,
+                               PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.collectorClient = collectorClient;
+        this.settingsConfig = settingsConfig;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(settingsConfig.getWorkers(), runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("register-outbox-relay-" + threadNumber.incrementAndGet());
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < settingsConfig.getWorkers(); i++) {
+            workers.submit(this::relay);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(settingsConfig.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    private void relay() {
+        long pollInterval = settingsConfig.getPollInterval().toMillis();
+        while (running) {
+            try {
+                if (relayBatch() < settingsConfig.getBatchSize()) {
+                    TimeUnit.MILLISECONDS.sleep(pollInterval);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Failed to relay REGISTER actions, will retry: {}", e.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(pollInterval);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private int relayBatch() {
+        List<RegisterActionOutbox> rows = transactionTemplate.execute(status -> claim());
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = rows.stream()
+                .map(RegisterActionOutbox::getId)
+                .toList();
+        try {
+            collectorClient.sendUserActionBatch(rows.stream()
+                    .map(this::toProto)
+                    .toList());
+        } catch (RuntimeException e) {
+            release(ids);
+            throw e;
+        }
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteAllByIdInBatch(ids));
+        log.debug("Relayed {} REGISTER actions", rows.size());
+        return rows.size();
+    }
+
+    private List<RegisterActionOutbox> claim() {
+        Instant now = Instant.now();
+        List<RegisterActionOutbox> rows = outboxRepository.findClaimable(now, settingsConfig.getBatchSize());
+        if (!rows.isEmpty()) {
+            outboxRepository.lease(rows.stream().map(RegisterActionOutbox::getId).toList(),
+                    now.plus(settingsConfig.getLease()));
+        }
+        return rows;
+    }
+
+    // lets the next attempt take the rows right away instead of waiting for the lease to expire
+    private void release(List<Long> ids) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.lease(ids, null));
+        } catch (Exception e) {
+            log.warn("Failed to release {} outbox rows, they will be retried once the lease expires: {}",
+                    ids.size(), e.getMessage());
+        }
+    }
+
+    private UserActionProto toProto(RegisterActionOutbox row) {
+        return UserActionProto.newBuilder()
+                .setUserId(row.getUserId())
+                .setEventId(row.getEventId())
+                .setActionType(ActionTypeProto.ACTION_REGISTER)
+                .setTimestamp(Timestamp.newBuilder()
+                        .setSeconds(row.getActionTime().getEpochSecond())
+                        .setNanos(row.getActionTime().getNano())
+                        .build())
+                .build();
+    }
+}
@@ -19,9 +19,11 @@ import ru.practicum.exception.NoAccessException;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.mapper.ParticipationRequestMapper;
 import ru.practicum.model.ParticipationRequest;
+import ru.practicum.outbox.RegisterActionOutbox;
+import ru.practicum.outbox.RegisterActionOutboxRepository;
 import ru.practicum.repository.ParticipationRequestRepository;
-import ru.practicum.statsclient.client.CollectorClient;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,7 +41,7 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
     private final EventClient eventClient;
     private final ParticipationRequestRepository requestRepository;
     private final ParticipationRequestMapper requestMapper;
-    private final CollectorClient collectorClient;
+    private final RegisterActionOutboxRepository outboxRepository;
 
     @Override
     @Transactional
@@ -90,9 +92,7 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
         ParticipationRequest saved = requestRepository.save(request);
         log.info("Request saved: id={}, created={}", saved.getId(), saved.getCreated());
 
-        if (status == CONFIRMED) {
-            sendRegisterActionAsync(userId, eventId);
-        }
+        outboxRepository.save(new RegisterActionOutbox(userId, eventId, Instant.now()));
 
         ParticipationRequestDto dto = requestMapper.toDto(saved);
 
@@ -241,17 +241,19 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
         for (ParticipationRequest request : requests) {
             if (shouldAutoConfirm(event)) {
                 confirmRequest(request, confirmed);
-                sendRegisterActionAsync(request.getRequesterId(), request.getEventId());
             } else if (available > 0) {
                 confirmRequest(request, confirmed);
                 available--;
-                sendRegisterActionAsync(request.getRequesterId(), request.getEventId());
             } else {
                 rejectRequest(request, rejected);
             }
         }
 
         requestRepository.saveAll(requests);
+        Instant now = Instant.now();
+        outboxRepository.saveAll(confirmed.stream()
+                .map(request -> new RegisterActionOutbox(request.getRequesterId(), request.getEventId(), now))
+                .toList());
         List<ParticipationRequestDto> confirmedDtos = confirmed.stream()
                 .map(requestMapper::toDto)
                 .toList();
@@ -320,16 +322,4 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
         event.setRequestModeration(true);
         return event;
     }
-
-    private void sendRegisterActionAsync(Long userId, Long eventId) {
-        new Thread(() -> {
-            try {
-                collectorClient.sendRegisterAction(userId, eventId);
-                log.info("Sent REGISTER action for user {} event {}", userId, eventId);
-            } catch (Exception e) {
-                log.warn("Failed to send REGISTER action (async): user={}, event={}, error={}",
-                        userId, eventId, e.getMessage());
-            }
-        }).start();
-    }
 }
\ No newline at end of file
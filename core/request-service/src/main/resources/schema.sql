@@ -20,4 +20,13 @@ CREATE INDEX IF NOT EXISTS idx_requests_requester_event ON participation_request
 -- Уникальный индекс для предотвращения дублирования заявок (как в бизнес-логике)
 CREATE UNIQUE INDEX IF NOT EXISTS uk_requests_requester_event
 ON participation_requests(requester_id, event_id)
-WHERE status NOT IN ('CANCELED', 'REJECTED');
\ No newline at end of file
+WHERE status NOT IN ('CANCELED', 'REJECTED');
+
+-- REGISTER-действия, записанные в одной транзакции с заявкой; relay отправляет их в коллектор и удаляет
+CREATE TABLE IF NOT EXISTS register_action_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    event_id BIGINT NOT NULL,
+    action_time TIMESTAMP WITH TIME ZONE NOT NULL,
+    claimed_until TIMESTAMP WITH TIME ZONE
+);
@@ -4,11 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import ru.practicum.config.AggregatorSettingsConfig;
 import ru.practicum.config.KafkaSettingsConfig;
 
 @SpringBootApplication
 @EnableDiscoveryClient
-@EnableConfigurationProperties(KafkaSettingsConfig.class)
+@EnableConfigurationProperties({KafkaSettingsConfig.class, AggregatorSettingsConfig.class})
 public class AggregatorApplication {
     public static void main(String[] args) {
         SpringApplication.run(AggregatorApplication.class, args);
@@ -0,0 +1,26 @@
+package ru.practicum.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.practicum.stage.AggregationMode;
+import ru.practicum.storage.StateStoreType;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties(prefix = "aggregator.settings")
+public class AggregatorSettingsConfig {
+    private AggregationMode mode = AggregationMode.SINGLE;
+    private int pairPartitions = 12;
+    private StateStoreType stateStore = StateStoreType.PRIMITIVE;
+    private int stripes = 64;
+    private int workers = 1;
+    private double similarityEpsilon = 0.0;
+    private int topKNeighbours = 0;
+    private Duration interactionWindow;
+    private Duration evictionInterval = Duration.ofSeconds(10);
+    private String snapshotPath;
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+}
@@ -9,6 +9,7 @@ import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 
 import java.util.Properties;
@@ -22,6 +23,7 @@ public class KafkaConfig {
     KafkaSettingsConfig kafkaSettingsConfig;
 
     @Bean
+    @Scope("prototype")
     public KafkaConsumer<String, UserActionAvro> kafkaConsumer() {
 
         Properties config = new Properties();
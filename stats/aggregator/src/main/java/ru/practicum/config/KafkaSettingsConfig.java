@@ -11,4 +11,8 @@ public class KafkaSettingsConfig {
     private String url;
     private String action;
     private String similarity;
+    private String pairDelta;
+    private String eventWeightSum;
+    private String userChangelog;
+    private String pairChangelog;
 }
@@ -0,0 +1,66 @@
+package ru.practicum.config;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.stereotype.Component;
+
+import java.util.Properties;
+
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StageKafkaClients {
+
+    public static final String USER_STAGE_GROUP = "aggregators-stats-ag";
+    public static final String PAIR_STAGE_GROUP = "aggregators-stats-ag-pairs";
+
+    KafkaSettingsConfig kafkaSettingsConfig;
+
+    public <V> KafkaConsumer<String, V> groupConsumer(String groupId,
+                                                      Class<? extends Deserializer<V>> valueDeserializer) {
+        Properties config = consumerProperties(valueDeserializer);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        return new KafkaConsumer<>(config);
+    }
+
+    public <V> KafkaConsumer<String, V> assignedConsumer(Class<? extends Deserializer<V>> valueDeserializer) {
+        return new KafkaConsumer<>(consumerProperties(valueDeserializer));
+    }
+
+    public KafkaProducer<String, SpecificRecordBase> transactionalProducer(String transactionalId) {
+        Properties config = new Properties();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaSettingsConfig.getUrl());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringSerializer");
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, "ru.practicum.serialization.AvroSerializer");
+        config.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, transactionalId);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+
+        return new KafkaProducer<>(config);
+    }
+
+    public Admin admin() {
+        Properties config = new Properties();
+        config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaSettingsConfig.getUrl());
+        return Admin.create(config);
+    }
+
+    private Properties consumerProperties(Class<?> valueDeserializer) {
+        Properties config = new Properties();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaSettingsConfig.getUrl());
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, valueDeserializer.getName());
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return config;
+    }
+}
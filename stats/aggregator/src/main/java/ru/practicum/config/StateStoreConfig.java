@@ -0,0 +1,39 @@
+package ru.practicum.config;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.storage.HashMapStateStore;
+import ru.practicum.storage.InteractionWindow;
+import ru.practicum.storage.PrimitiveStateStore;
+import ru.practicum.storage.SimilarityStateStore;
+
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StateStoreConfig {
+
+    AggregatorSettingsConfig aggregatorSettingsConfig;
+
+    @Bean
+    public SimilarityStateStore similarityStateStore() {
+        log.info("Aggregator state store: {}, workers: {}", aggregatorSettingsConfig.getStateStore(),
+                aggregatorSettingsConfig.getWorkers());
+        return switch (aggregatorSettingsConfig.getStateStore()) {
+            case HASH_MAP -> new HashMapStateStore();
+            case PRIMITIVE -> new PrimitiveStateStore(aggregatorSettingsConfig.getStripes());
+        };
+    }
+
+    @Bean
+    public InteractionWindow interactionWindow() {
+        Duration window = aggregatorSettingsConfig.getInteractionWindow();
+        return new InteractionWindow(window == null ? 0 : window.toMillis());
+    }
+}
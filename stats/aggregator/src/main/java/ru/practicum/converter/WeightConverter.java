@@ -0,0 +1,27 @@
+package ru.practicum.converter;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.exception.IncorrectActionTypeException;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class WeightConverter {
+
+    public static double getWeightOnAction(ActionTypeAvro action) throws IncorrectActionTypeException {
+        switch (action) {
+            case VIEW -> {
+                return 0.4;
+            }
+            case REGISTER -> {
+                return 0.8;
+            }
+            case LIKE -> {
+                return 1.0;
+            }
+            default ->
+                    throw new IncorrectActionTypeException("User action type: {0} - \n" +
+                            "doesn't exist", action);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.serialization;
+
+import ru.practicum.ewm.stats.avro.EventPairDeltaAvro;
+
+public class EventPairDeltaAvroDeserializer extends BaseAvroDeserializer<EventPairDeltaAvro> {
+
+    public EventPairDeltaAvroDeserializer() {
+        super(EventPairDeltaAvro.getClassSchema());
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.serialization;
+
+import ru.practicum.ewm.stats.avro.EventPairSumAvro;
+
+public class EventPairSumAvroDeserializer extends BaseAvroDeserializer<EventPairSumAvro> {
+
+    public EventPairSumAvroDeserializer() {
+        super(EventPairSumAvro.getClassSchema());
+    }
+}
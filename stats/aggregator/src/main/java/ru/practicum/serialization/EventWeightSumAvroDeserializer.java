@@ -0,0 +1,10 @@
+package ru.practicum.serialization;
+
+import ru.practicum.ewm.stats.avro.EventWeightSumAvro;
+
+public class EventWeightSumAvroDeserializer extends BaseAvroDeserializer<EventWeightSumAvro> {
+
+    public EventWeightSumAvroDeserializer() {
+        super(EventWeightSumAvro.getClassSchema());
+    }
+}
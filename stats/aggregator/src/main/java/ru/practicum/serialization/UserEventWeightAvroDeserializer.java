@@ -0,0 +1,10 @@
+package ru.practicum.serialization;
+
+import ru.practicum.ewm.stats.avro.UserEventWeightAvro;
+
+public class UserEventWeightAvroDeserializer extends BaseAvroDeserializer<UserEventWeightAvro> {
+
+    public UserEventWeightAvroDeserializer() {
+        super(UserEventWeightAvro.getClassSchema());
+    }
+}
@@ -5,83 +5,151 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.clients.consumer.Consumer;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.producer.Producer;
-import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
-import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.config.AggregatorSettingsConfig;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.snapshot.SnapshotService;
+import ru.practicum.storage.InteractionWindow;
+import ru.practicum.storage.SimilarityStateStore;
+import ru.practicum.storage.TopKNeighbourIndex;
 
-import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class AggregationService implements Runnable {
+@ConditionalOnProperty(prefix = "aggregator.settings", name = "mode", havingValue = "single", matchIfMissing = true)
+public class AggregationService {
 
     private final UserActionDomainService userActionDomainService;
+    private final SimilarityStateStore stateStore;
+    private final SnapshotService snapshotService;
+    private final InteractionWindow interactionWindow;
 
-    private final Consumer<String, UserActionAvro> consumer;
+    private final ObjectProvider<Consumer<String, UserActionAvro>> consumerProvider;
     private final Producer<String, SpecificRecordBase> producer;
     private final KafkaSettingsConfig settingsConfig;
+    private final AggregatorSettingsConfig aggregatorSettingsConfig;
 
-    @Override
-    public void run() {
-        try {
+    private final List<AggregationWorker> workers = new ArrayList<>();
+    private final List<SimilarityCoalescer> coalescers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private ScheduledExecutorService evictionScheduler;
 
-            log.info("Starting the process of receiving data by the consumer");
-            Runtime.getRuntime().addShutdownHook(new Thread(consumer::wakeup));
+    @PostConstruct
+    public void init() {
+        int workerCount = Math.max(1, aggregatorSettingsConfig.getWorkers());
+        TopKNeighbourIndex neighbourIndex = createNeighbourIndex();
+        PairEmissionLocks emissionLocks = new PairEmissionLocks();
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new AggregationWorker(i == 0 ? this::reportStats : null, userActionDomainService,
+                    snapshotService, consumerProvider.getObject(), producer, settingsConfig, this::onWorkerStopped,
+                    createCoalescer(neighbourIndex, emissionLocks)));
+        }
+        runningWorkers.set(workerCount);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> workers.forEach(AggregationWorker::wakeup)));
 
-            consumer.subscribe(List.of(settingsConfig.getAction()));
-            log.info("topic subscribed: {}", settingsConfig.getAction());
+        for (int i = 0; i < workerCount; i++) {
+            Thread thread = new Thread(workers.get(i));
+            thread.setName(workerCount == 1 ? "aggregator" : "aggregator-" + i);
+            thread.start();
+        }
 
-            log.info("Start receiving data from the topic");
+        if (interactionWindow.isEnabled()) {
+            InteractionEvictor evictor = new InteractionEvictor(interactionWindow, userActionDomainService,
+                    snapshotService, producer, settingsConfig,
+                    createCoalescer(neighbourIndex, emissionLocks));
+            long interval = aggregatorSettingsConfig.getEvictionInterval().toMillis();
+            evictionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "aggregator-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            evictionScheduler.scheduleWithFixedDelay(evictor, interval, interval, TimeUnit.MILLISECONDS);
+            log.info("Interaction window: {}, eviction every {}", aggregatorSettingsConfig.getInteractionWindow(),
+                    aggregatorSettingsConfig.getEvictionInterval());
+        }
+    }
 
-            while (true) {
-                ConsumerRecords<String, UserActionAvro> records = consumer.poll(Duration.ofMillis(500));
-                log.info("Records received: {}", records.count());
-                for (ConsumerRecord<String, UserActionAvro> datapart : records) {
-                    for (EventSimilarityAvro eventSimilarityAvro : userActionDomainService.calculateSimilarityEvents(datapart.value())) {
-                        producer.send(new ProducerRecord<>(settingsConfig.getSimilarity(), datapart.key(), eventSimilarityAvro));
-                    }
+    private SimilarityCoalescer createCoalescer(TopKNeighbourIndex neighbourIndex, PairEmissionLocks emissionLocks) {
+        SimilarityCoalescer coalescer = new SimilarityCoalescer(stateStore,
+                aggregatorSettingsConfig.getSimilarityEpsilon(), neighbourIndex,
+                userActionDomainService::currentSimilarity, emissionLocks);
+        coalescers.add(coalescer);
+        return coalescer;
+    }
 
-                    consumer.commitAsync();
-                }
-            }
-        } catch (WakeupException ignored) {
+    // totals over the coalescers of every worker and the evictor
+    private void reportStats() {
+        long received = 0;
+        long suppressed = 0;
+        long retracted = 0;
+        for (SimilarityCoalescer coalescer : coalescers) {
+            received += coalescer.received();
+            suppressed += coalescer.suppressed();
+            retracted += coalescer.retracted();
+        }
+        log.info("State store: {}", stateStore.stats());
+        log.info("Similarities computed: {}, suppressed below epsilon: {}, retracted: {}",
+                received, suppressed, retracted);
+    }
 
+    // the similarity map holds exactly the pairs retained downstream, so the index is rebuilt from it after a restore
+    private TopKNeighbourIndex createNeighbourIndex() {
+        int k = aggregatorSettingsConfig.getTopKNeighbours();
+        if (k <= 0) {
+            return null;
+        }
+        TopKNeighbourIndex index = new TopKNeighbourIndex(k);
+        stateStore.forEachSimilarity((first, second, score) -> {
+            index.offer(first, second, score);
+            index.offer(second, first, score);
+        });
+        log.info("Top-{} neighbour retention enabled, events indexed: {}", k, index.events());
+        return index;
+    }
+
+    private void onWorkerStopped() {
+        if (runningWorkers.decrementAndGet() > 0) {
+            return;
+        }
+        stopEviction();
+        try {
+            producer.flush();
+            log.info("Producer buffer sent");
+            snapshotService.close();
         } catch (Exception e) {
-            log.error("Processing failed: {}", e.getMessage());
+            log.error("Error on final send of producer buffer", e);
         } finally {
             try {
-                producer.flush();
-                log.info("Producer buffer sent");
+                producer.close();
+                log.info("producer closed");
             } catch (Exception e) {
-                log.error("Error on final send of producer buffer", e);
-            } finally {
-                try {
-                    producer.close();
-                    log.info("producer closed");
-                    consumer.close();
-                    log.info("consumer closed");
-                } catch (Exception e) {
-                    log.error("Error closing producer and consumer: {}", e.getMessage());
-                }
+                log.error("Error closing producer: {}", e.getMessage());
             }
         }
     }
 
-    @PostConstruct
-    public void init() {
-        Thread thread = new Thread(this);
-        thread.setName("aggregator");
-        thread.start();
+    private void stopEviction() {
+        if (evictionScheduler == null) {
+            return;
+        }
+        evictionScheduler.shutdown();
+        try {
+            evictionScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
-
-
@@ -0,0 +1,124 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.snapshot.SnapshotService;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+@Slf4j
+@RequiredArgsConstructor
+public class AggregationWorker implements Runnable, ConsumerRebalanceListener {
+
+    private static final Duration STATS_REPORT_INTERVAL = Duration.ofMinutes(1);
+
+    // null on every worker but the one that reports for the whole aggregator
+    private final Runnable statsReport;
+    private final UserActionDomainService userActionDomainService;
+    private final SnapshotService snapshotService;
+    private final Consumer<String, UserActionAvro> consumer;
+    private final Producer<String, SpecificRecordBase> producer;
+    private final KafkaSettingsConfig settingsConfig;
+    private final Runnable onStop;
+    private final SimilarityCoalescer coalescer;
+
+    @Override
+    public void run() {
+        try {
+
+            log.info("Starting the process of receiving data by the consumer");
+
+            consumer.subscribe(List.of(settingsConfig.getAction()), this);
+            log.info("topic subscribed: {}", settingsConfig.getAction());
+
+            log.info("Start receiving data from the topic");
+
+            long nextStatsReport = System.nanoTime() + STATS_REPORT_INTERVAL.toNanos();
+            while (true) {
+                ConsumerRecords<String, UserActionAvro> records = consumer.poll(Duration.ofMillis(500));
+                log.info("Records received: {}", records.count());
+                if (!records.isEmpty()) {
+                    processBatch(records);
+                }
+
+                if (statsReport != null && System.nanoTime() - nextStatsReport >= 0) {
+                    statsReport.run();
+                    nextStatsReport = System.nanoTime() + STATS_REPORT_INTERVAL.toNanos();
+                }
+            }
+        } catch (WakeupException ignored) {
+
+        } catch (Exception e) {
+            log.error("Processing failed: {}", e.getMessage());
+        } finally {
+            try {
+                consumer.close();
+                log.info("consumer closed");
+            } catch (Exception e) {
+                log.error("Error closing consumer: {}", e.getMessage());
+            } finally {
+                onStop.run();
+            }
+        }
+    }
+
+    // the whole poll is applied under the snapshot lock, so a snapshot never covers records whose similarities
+    // are still waiting in the coalescer
+    private void processBatch(ConsumerRecords<String, UserActionAvro> records) {
+        Lock processingLock = snapshotService.processingLock();
+        processingLock.lock();
+        try {
+            for (ConsumerRecord<String, UserActionAvro> datapart : records) {
+                userActionDomainService.calculateSimilarityEvents(datapart.value()).forEach(coalescer::add);
+            }
+            int sent = coalescer.drain(similarity -> producer.send(new ProducerRecord<>(settingsConfig.getSimilarity(),
+                    pairKey(similarity), similarity)));
+            log.debug("Similarities sent: {}", sent);
+            consumer.commitAsync();
+            snapshotService.recordProcessed(records);
+        } finally {
+            processingLock.unlock();
+        }
+    }
+
+    // workers may update the same pair, keying by pair keeps its updates on one partition
+    private static String pairKey(EventSimilarityAvro similarity) {
+        return similarity.getEventA() + ":" + similarity.getEventB();
+    }
+
+    public void wakeup() {
+        consumer.wakeup();
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        log.info("Partitions revoked: {}", partitions);
+        try {
+            producer.flush();
+            consumer.commitSync();
+        } catch (Exception e) {
+            log.error("Error committing offsets on revoke: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        log.info("Partitions assigned: {}", partitions);
+        snapshotService.seekRestored(consumer, partitions);
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.snapshot.SnapshotService;
+import ru.practicum.storage.InteractionWindow;
+
+import java.time.Instant;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Periodically removes interactions that fell out of the window and sends the similarities they changed.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class InteractionEvictor implements Runnable {
+
+    private static final int BATCH_SIZE = 4096;
+
+    private final InteractionWindow interactionWindow;
+    private final UserActionDomainService userActionDomainService;
+    private final SnapshotService snapshotService;
+    private final Producer<String, SpecificRecordBase> producer;
+    private final KafkaSettingsConfig settingsConfig;
+    private final SimilarityCoalescer coalescer;
+
+    private final long[] users = new long[BATCH_SIZE];
+    private final long[] events = new long[BATCH_SIZE];
+    private final long[] timestamps = new long[BATCH_SIZE];
+
+    @Override
+    public void run() {
+        try {
+            long expired = 0;
+            int count;
+            do {
+                count = evictBatch();
+                expired += count;
+            } while (count == BATCH_SIZE);
+            if (expired > 0) {
+                log.info("Interactions expired: {}, still in the window: {}", expired, interactionWindow.interactions());
+            }
+        } catch (Exception e) {
+            log.error("Interaction eviction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // polled under the snapshot lock as well, a snapshot must not see the window without the weights it still covers
+    private int evictBatch() {
+        Lock processingLock = snapshotService.processingLock();
+        processingLock.lock();
+        try {
+            int count = interactionWindow.pollExpired(users, events, timestamps);
+            Instant expiredAt = Instant.ofEpochMilli(interactionWindow.watermark());
+            for (int i = 0; i < count; i++) {
+                userActionDomainService.expireInteraction(users[i], events[i], timestamps[i], expiredAt)
+                        .forEach(coalescer::add);
+            }
+            coalescer.drain(similarity -> producer.send(new ProducerRecord<>(settingsConfig.getSimilarity(),
+                    similarity.getEventA() + ":" + similarity.getEventB(), similarity)));
+            return count;
+        } finally {
+            processingLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.service;
+
+import ru.practicum.storage.primitive.HashCommon;
+
+import java.util.Arrays;
+
+/**
+ * Lock stripes over event pairs, shared by the coalescers of all workers and the evictor.
+ * A pair is re-scored and sent only under its stripe, so its sends reach the producer in the order its scores
+ * were read, while pairs of other stripes are emitted in parallel.
+ */
+class PairEmissionLocks {
+
+    private static final int STRIPES = 1024;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    PairEmissionLocks() {
+        Arrays.setAll(locks, i -> new Object());
+    }
+
+    Object forPair(long firstEventId, long secondEventId) {
+        return locks[HashCommon.stripe(firstEventId, secondEventId, Integer.numberOfTrailingZeros(STRIPES))];
+    }
+}
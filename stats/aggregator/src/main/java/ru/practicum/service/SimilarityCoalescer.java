@@ -0,0 +1,191 @@
+package ru.practicum.service;
+
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.storage.RelationEvent;
+import ru.practicum.storage.SimilarityStateStore;
+import ru.practicum.storage.TopKNeighbourIndex;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collects the similarities computed for one poll and keeps only the latest score of every pair.
+ * On drain, pairs whose score moved by less than {@code epsilon} since the last emitted one are dropped.
+ * With a neighbour index only pairs among the top K of either event are emitted, pairs pushed out of it
+ * are retracted downstream. Similarities added with the retracted flag (pairs no user co-rates any more) are
+ * retracted if they were emitted before. Not thread-safe, every worker owns its own instance; the index and
+ * the emission locks are shared.
+ * <p>
+ * Workers lock by user only, so two of them can update the same pair. Drain therefore re-scores every pair
+ * from the current state and hands it to the producer under the pair's emission lock stripe. Whichever worker
+ * sends a pair last sends its latest score, and the topic never ends on an older one. A pair pushed out of the
+ * index by another one is retracted afterwards under its own stripe, once it is clear no event retains it.
+ */
+public class SimilarityCoalescer {
+
+    private final SimilarityStateStore stateStore;
+    private final double epsilon;
+    private final TopKNeighbourIndex neighbourIndex;
+    private final UnaryOperator<EventSimilarityAvro> rescorer;
+    private final PairEmissionLocks emissionLocks;
+    private final Map<RelationEvent, EventSimilarityAvro> pending = new LinkedHashMap<>();
+
+    // written by the owning worker only, read by the stats report of the aggregator
+    private volatile long received;
+    private volatile long suppressed;
+    private volatile long retracted;
+
+    public SimilarityCoalescer(SimilarityStateStore stateStore, double epsilon, TopKNeighbourIndex neighbourIndex,
+                               UnaryOperator<EventSimilarityAvro> rescorer, PairEmissionLocks emissionLocks) {
+        this.stateStore = stateStore;
+        this.epsilon = epsilon;
+        this.neighbourIndex = neighbourIndex;
+        this.rescorer = rescorer;
+        this.emissionLocks = emissionLocks;
+    }
+
+    public void add(EventSimilarityAvro similarity) {
+        received++;
+        pending.put(new RelationEvent(similarity.getEventA(), similarity.getEventB()), similarity);
+    }
+
+    /**
+     * Passes the similarities to send to {@code sender}, each while holding its pair's emission lock,
+     * and returns their count.
+     */
+    public int drain(Consumer<EventSimilarityAvro> sender) {
+        List<EventSimilarityAvro> batch = new ArrayList<>();
+        List<EventSimilarityAvro> evicted = new ArrayList<>();
+        int sent = 0;
+        for (EventSimilarityAvro computed : pending.values()) {
+            synchronized (emissionLocks.forPair(computed.getEventA(), computed.getEventB())) {
+                EventSimilarityAvro similarity = rescorer.apply(computed);
+                if (neighbourIndex != null) {
+                    retain(similarity, batch, evicted);
+                } else if (similarity.getRetracted()) {
+                    retract(similarity.getEventA(), similarity.getEventB(), similarity.getTimestamp(), batch);
+                } else {
+                    emit(similarity, batch);
+                }
+                sent += send(batch, sender);
+            }
+        }
+        for (EventSimilarityAvro pair : evicted) {
+            synchronized (emissionLocks.forPair(pair.getEventA(), pair.getEventB())) {
+                if (!isRetained(pair.getEventA(), pair.getEventB())) {
+                    retract(pair.getEventA(), pair.getEventB(), pair.getTimestamp(), batch);
+                }
+                sent += send(batch, sender);
+            }
+        }
+        pending.clear();
+        return sent;
+    }
+
+    public long received() {
+        return received;
+    }
+
+    public long suppressed() {
+        return suppressed;
+    }
+
+    public long retracted() {
+        return retracted;
+    }
+
+    private void retain(EventSimilarityAvro similarity, List<EventSimilarityAvro> batch,
+                        List<EventSimilarityAvro> evicted) {
+        long first = similarity.getEventA();
+        long second = similarity.getEventB();
+        double score = similarity.getScore();
+
+        if (similarity.getRetracted()) {
+            synchronized (neighbourIndex) {
+                neighbourIndex.remove(first, second);
+                neighbourIndex.remove(second, first);
+            }
+            retract(first, second, similarity.getTimestamp(), batch);
+            return;
+        }
+
+        long evictedByFirst;
+        long evictedBySecond;
+        synchronized (neighbourIndex) {
+            evictedByFirst = neighbourIndex.offer(first, second, score);
+            evictedBySecond = neighbourIndex.offer(second, first, score);
+        }
+        if (evictedByFirst != TopKNeighbourIndex.REJECTED || evictedBySecond != TopKNeighbourIndex.REJECTED) {
+            emit(similarity, batch);
+        } else {
+            retract(first, second, similarity.getTimestamp(), batch);
+        }
+
+        // an evicted pair stays downstream while it is still among the top K of its other event;
+        // that is checked under the evicted pair's own stripe, after this one is released
+        if (evictedByFirst >= 0) {
+            evicted.add(evictedPair(first, evictedByFirst, similarity.getTimestamp()));
+        }
+        if (evictedBySecond >= 0) {
+            evicted.add(evictedPair(second, evictedBySecond, similarity.getTimestamp()));
+        }
+    }
+
+    private boolean isRetained(long first, long second) {
+        synchronized (neighbourIndex) {
+            return neighbourIndex.contains(first, second) || neighbourIndex.contains(second, first);
+        }
+    }
+
+    private static EventSimilarityAvro evictedPair(long eventId, long neighbourId, Instant timestamp) {
+        return EventSimilarityAvro.newBuilder()
+                .setEventA(Math.min(eventId, neighbourId))
+                .setEventB(Math.max(eventId, neighbourId))
+                .setScore(0.0)
+                .setRetracted(true)
+                .setTimestamp(timestamp)
+                .build();
+    }
+
+    private static int send(List<EventSimilarityAvro> batch, Consumer<EventSimilarityAvro> sender) {
+        int count = batch.size();
+        batch.forEach(sender);
+        batch.clear();
+        return count;
+    }
+
+    private void emit(EventSimilarityAvro similarity, List<EventSimilarityAvro> batch) {
+        long first = similarity.getEventA();
+        long second = similarity.getEventB();
+        double score = similarity.getScore();
+        // NaN for a pair that was never emitted, so the comparison fails and the pair goes out
+        if (Math.abs(score - stateStore.getSimilarity(first, second)) < epsilon) {
+            suppressed++;
+            return;
+        }
+        stateStore.putSimilarity(first, second, score);
+        batch.add(similarity);
+    }
+
+    private void retract(long eventId, long neighbourId, Instant timestamp, List<EventSimilarityAvro> batch) {
+        long first = Math.min(eventId, neighbourId);
+        long second = Math.max(eventId, neighbourId);
+        if (Double.isNaN(stateStore.getSimilarity(first, second))) {
+            return;
+        }
+        stateStore.removeSimilarity(first, second);
+        retracted++;
+        batch.add(EventSimilarityAvro.newBuilder()
+                .setEventA(first)
+                .setEventB(second)
+                .setScore(0.0)
+                .setRetracted(true)
+                .setTimestamp(timestamp)
+                .build());
+    }
+}
@@ -1,114 +1,165 @@
 package ru.practicum.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.converter.WeightConverter;
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 import ru.practicum.exception.IncorrectActionTypeException;
+import ru.practicum.storage.InteractionWindow;
+import ru.practicum.storage.SimilarityStateStore;
+import ru.practicum.storage.primitive.HashCommon;
 
 import java.time.Instant;
 import java.util.*;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class UserActionDomainService {
 
-    private final Map<Long, Double> eventWeightSumMap;
-    private final Map<RelationEvent, Double> eventsSimilarityMap;
-    private final Map<Long, Double> sqrtCacheMap;
-    private final Map<Long, Map<Long, Double>> usersFeedbackMap;
-    private final Map<RelationEvent, Double> eventsMinWeightSumMap;
-
-    public UserActionDomainService() {
-        usersFeedbackMap = new HashMap<>();
-        eventsMinWeightSumMap = new HashMap<>();
-        eventWeightSumMap = new HashMap<>();
-        eventsSimilarityMap = new HashMap<>();
-        sqrtCacheMap = new HashMap<>();
-    }
+    private static final int USER_LOCK_STRIPES = 1024;
+    // sums are built from 0.4/0.8/1.0 steps, anything this small after a subtraction is rounding residue
+    private static final double ZERO_SUM = 1e-9;
+
+    private final SimilarityStateStore stateStore;
+    private final InteractionWindow interactionWindow;
+    private final Object[] userLocks = createUserLocks();
 
     public List<EventSimilarityAvro> calculateSimilarityEvents(UserActionAvro avro) throws IncorrectActionTypeException {
 
-        Long userId = avro.getUserId();
-        Long eventId = avro.getEventId();
-        log.info("User action: {} with the event: {}", userId, eventId);
+        long userId = avro.getUserId();
+        long eventId = avro.getEventId();
 
-        Double newWeight = convertActionToWeight(avro.getActionType());
-        log.info("User action weight: {}", newWeight);
+        double newWeight = WeightConverter.getWeightOnAction(avro.getActionType());
 
-        Map<Long, Double> userRatingsMap = usersFeedbackMap.computeIfAbsent(eventId, k -> new HashMap<>());
-        Double oldWeight = userRatingsMap.getOrDefault(userId, 0.0);
+        // records are keyed by user, so the lock is only contended by unkeyed actions and window eviction
+        synchronized (userLock(userId)) {
+            interactionWindow.record(userId, eventId, avro.getTimestamp().toEpochMilli());
+            double oldWeight = stateStore.getUserWeight(userId, eventId);
 
-        log.info("Comparison of old and new weight: {} and {}", oldWeight, newWeight);
-        if (oldWeight < newWeight) {
-            log.info("The new weight is greater than the old one");
-            userRatingsMap.put(userId, newWeight);
-            return determineSimilarity(eventId, userId, oldWeight, newWeight, avro.getTimestamp());
-        } else {
-            return Collections.emptyList();
+            log.debug("User action: {} with the event: {}, old weight: {}, new weight: {}",
+                    userId, eventId, oldWeight, newWeight);
+            if (oldWeight < newWeight) {
+                log.debug("The new weight is greater than the old one");
+                stateStore.putUserWeight(userId, eventId, newWeight);
+                return determineSimilarity(eventId, userId, oldWeight, newWeight, avro.getTimestamp());
+            } else {
+                return Collections.emptyList();
+            }
         }
     }
 
+    private List<EventSimilarityAvro> determineSimilarity(long eventId, long userId, double oldWeight, double newWeight,
+                                                          Instant timestamp) {
 
-    private List<EventSimilarityAvro> determineSimilarity(Long eventId, Long userId, Double oldWeight, Double newWeight, Instant timestamp) {
-
-        double updatedEventSum = eventWeightSumMap.getOrDefault(eventId, 0.0) - oldWeight + newWeight;
-        eventWeightSumMap.put(eventId, updatedEventSum);
-        sqrtCacheMap.remove(eventId);
+        stateStore.addEventWeightSum(eventId, newWeight - oldWeight);
 
         List<EventSimilarityAvro> similarityMessages = new ArrayList<>();
 
-        for (Map.Entry<Long, Map<Long, Double>> entry : usersFeedbackMap.entrySet()) {
-            Long currentEventId = entry.getKey();
-            Map<Long, Double> userFeedbackMap = entry.getValue();
+        // only the events this user has interacted with can share a common weight with eventId
+        stateStore.forEachUserEvent(userId, (currentEventId, userConvergenceWeight) -> {
+            if (currentEventId == eventId) return;
 
-            if (!userFeedbackMap.containsKey(userId) || Objects.equals(currentEventId, eventId)) continue;
+            long first = Math.min(eventId, currentEventId);
+            long second = Math.max(eventId, currentEventId);
 
-            double userConvergenceWeight = userFeedbackMap.get(userId);
-            RelationEvent eventPair = RelationEvent.create(eventId, currentEventId);
-
-            double previousMinSum = eventsMinWeightSumMap.getOrDefault(eventPair, 0.0);
-            double updatedMinSum = previousMinSum - Math.min(oldWeight, userConvergenceWeight) + Math.min(newWeight, userConvergenceWeight);
-
-            eventsMinWeightSumMap.put(eventPair, updatedMinSum);
-            double similarityScore = calculateSimilarity(eventPair, updatedMinSum);
-            eventsSimilarityMap.put(eventPair, similarityScore);
+            double delta = Math.min(newWeight, userConvergenceWeight) - Math.min(oldWeight, userConvergenceWeight);
+            double updatedMinSum = stateStore.addMinWeightSum(first, second, delta);
+            double similarityScore = calculateSimilarity(first, second, updatedMinSum);
 
             EventSimilarityAvro message = EventSimilarityAvro.newBuilder()
-                    .setEventA(eventPair.first())
-                    .setEventB(eventPair.second())
+                    .setEventA(first)
+                    .setEventB(second)
                     .setScore(similarityScore)
                     .setTimestamp(timestamp)
                     .build();
             similarityMessages.add(message);
-        }
+        });
 
         return similarityMessages;
     }
 
-    private Double convertActionToWeight(ActionTypeAvro action) throws IncorrectActionTypeException {
-        switch (action) {
-            case VIEW -> {
-                return 0.4;
-            }
-            case REGISTER -> {
-                return 0.8;
+    /**
+     * Removes an interaction that fell out of the window, unless the user acted on the event again since
+     * {@code timestamp}. Returns the updated similarities of the pairs the interaction contributed to;
+     * pairs no user co-rates any more come back with the retracted flag.
+     */
+    public List<EventSimilarityAvro> expireInteraction(long userId, long eventId, long timestamp, Instant expiredAt) {
+        synchronized (userLock(userId)) {
+            if (!interactionWindow.forget(userId, eventId, timestamp)) {
+                return Collections.emptyList();
             }
-            case LIKE -> {
-                return 1.0;
+            double weight = stateStore.getUserWeight(userId, eventId);
+            if (weight == 0) {
+                return Collections.emptyList();
             }
-            default ->
-                    throw new IncorrectActionTypeException("User action type: {0} - \n" +
-                            "doesn't exist", action);
+            log.debug("Interaction of user {} with the event {} expired, weight: {}", userId, eventId, weight);
+
+            stateStore.removeUserWeight(userId, eventId);
+            stateStore.addEventWeightSumOrRemove(eventId, -weight, ZERO_SUM);
+
+            List<EventSimilarityAvro> similarityMessages = new ArrayList<>();
+            stateStore.forEachUserEvent(userId, (currentEventId, userConvergenceWeight) -> {
+                long first = Math.min(eventId, currentEventId);
+                long second = Math.max(eventId, currentEventId);
+
+                // other users' workers update the same sums concurrently, so subtract and drop in one store call
+                double updatedMinSum = stateStore.addMinWeightSumOrRemove(first, second,
+                        -Math.min(weight, userConvergenceWeight), ZERO_SUM);
+                EventSimilarityAvro.Builder message = EventSimilarityAvro.newBuilder()
+                        .setEventA(first)
+                        .setEventB(second)
+                        .setTimestamp(expiredAt);
+                if (updatedMinSum < ZERO_SUM) {
+                    message.setScore(0.0).setRetracted(true);
+                } else {
+                    message.setScore(calculateSimilarity(first, second, updatedMinSum));
+                }
+                similarityMessages.add(message.build());
+            });
+            return similarityMessages;
         }
     }
 
-    private double calculateSimilarity(RelationEvent pair, double sumCommon) {
-        return sumCommon / (getSumOfSqrt(pair.first()) * getSumOfSqrt(pair.second()));
+    /**
+     * The pair's similarity as the state stands now; retracted when no user co-rates the pair any more.
+     * Workers only lock by user, so two of them may compute the same pair and drain it in either order.
+     * Coalescers re-read the score through here under the pair's emission lock stripe, so the pair's last send
+     * always carries its latest score.
+     */
+    public EventSimilarityAvro currentSimilarity(EventSimilarityAvro computed) {
+        long first = computed.getEventA();
+        long second = computed.getEventB();
+        double minSum = stateStore.getMinWeightSum(first, second);
+        if (minSum < ZERO_SUM) {
+            return computed.getRetracted() ? computed : EventSimilarityAvro.newBuilder(computed)
+                    .setScore(0.0)
+                    .setRetracted(true)
+                    .build();
+        }
+        double score = calculateSimilarity(first, second, minSum);
+        if (!computed.getRetracted() && score == computed.getScore()) {
+            return computed;
+        }
+        return EventSimilarityAvro.newBuilder(computed)
+                .setScore(score)
+                .setRetracted(false)
+                .build();
+    }
+
+    private Object userLock(long userId) {
+        return userLocks[HashCommon.stripe(userId, Integer.numberOfTrailingZeros(USER_LOCK_STRIPES))];
+    }
+
+    private static Object[] createUserLocks() {
+        Object[] locks = new Object[USER_LOCK_STRIPES];
+        Arrays.setAll(locks, i -> new Object());
+        return locks;
     }
 
-    private double getSumOfSqrt(Long eventId) {
-        return sqrtCacheMap.computeIfAbsent(eventId, id -> Math.sqrt(eventWeightSumMap.getOrDefault(id, 0.0)));
+    private double calculateSimilarity(long first, long second, double sumCommon) {
+        return sumCommon / (Math.sqrt(stateStore.getEventWeightSum(first)) * Math.sqrt(stateStore.getEventWeightSum(second)));
     }
 }
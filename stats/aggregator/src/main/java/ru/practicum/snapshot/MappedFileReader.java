@@ -0,0 +1,72 @@
+package ru.practicum.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader counterpart of {@link MappedFileWriter}.
+ */
+class MappedFileReader implements Closeable {
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    MappedFileReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        map(0);
+    }
+
+    int getInt() {
+        return ensure(Integer.BYTES).getInt();
+    }
+
+    long getLong() {
+        return ensure(Long.BYTES).getLong();
+    }
+
+    double getDouble() {
+        return ensure(Double.BYTES).getDouble();
+    }
+
+    byte[] getBytes(int length) {
+        byte[] bytes = new byte[length];
+        ensure(length).get(bytes);
+        return bytes;
+    }
+
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private MappedByteBuffer ensure(int bytes) {
+        if (window.remaining() < bytes) {
+            try {
+                map(windowStart + window.position());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (window.remaining() < bytes) {
+                throw new IllegalStateException("Snapshot is truncated at " + windowStart);
+            }
+        }
+        return window;
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MappedFileWriter.WINDOW_SIZE, size - start));
+    }
+}
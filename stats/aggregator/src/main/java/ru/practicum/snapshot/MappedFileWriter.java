@@ -0,0 +1,80 @@
+package ru.practicum.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential writer over a memory-mapped file of a known size. The file is mapped in windows,
+ * so snapshots are not limited by the 2 GB size of a single {@link MappedByteBuffer}.
+ */
+class MappedFileWriter implements Closeable {
+
+    static final long WINDOW_SIZE = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    MappedFileWriter(Path path, long size) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size = size;
+        map(0);
+    }
+
+    void putInt(int value) {
+        ensure(Integer.BYTES).putInt(value);
+    }
+
+    void putLong(long value) {
+        ensure(Long.BYTES).putLong(value);
+    }
+
+    void putDouble(double value) {
+        ensure(Double.BYTES).putDouble(value);
+    }
+
+    void putBytes(byte[] bytes) {
+        ensure(bytes.length).put(bytes);
+    }
+
+    long position() {
+        return windowStart + window.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            window.force();
+            if (position() != size) {
+                throw new IllegalStateException("Snapshot size mismatch: written " + position() + ", expected " + size);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    // values never straddle two windows, a window is remapped as soon as the next value doesn't fit
+    private MappedByteBuffer ensure(int bytes) {
+        if (window.remaining() < bytes) {
+            try {
+                window.force();
+                map(position());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return window;
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(WINDOW_SIZE, size - start));
+    }
+}
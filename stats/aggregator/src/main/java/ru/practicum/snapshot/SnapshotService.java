@@ -0,0 +1,157 @@
+package ru.practicum.snapshot;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.AggregatorSettingsConfig;
+import ru.practicum.storage.InteractionWindow;
+import ru.practicum.storage.SimilarityStateStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Periodically writes the state store and the offsets of the records it already contains to a snapshot file,
+ * and restores both on startup. Workers hold the read side of {@link #processingLock()} while applying a poll,
+ * so a snapshot always sees state and offsets of the same set of records.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "aggregator.settings", name = "mode", havingValue = "single", matchIfMissing = true)
+public class SnapshotService {
+
+    private final SimilarityStateStore stateStore;
+    private final InteractionWindow interactionWindow;
+    private final Producer<String, SpecificRecordBase> producer;
+    private final AggregatorSettingsConfig aggregatorSettingsConfig;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<TopicPartition, Long> processedOffsets = new ConcurrentHashMap<>();
+    // partitions still to be positioned at the restored snapshot, null when nothing was restored
+    private Set<TopicPartition> pendingSeeks;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        Path path = snapshotPath();
+        if (path == null) {
+            log.info("State snapshots are disabled");
+            return;
+        }
+        if (Files.exists(path)) {
+            long start = System.nanoTime();
+            try {
+                processedOffsets.putAll(StateSnapshots.read(path, stateStore, interactionWindow));
+                pendingSeeks = new HashSet<>(processedOffsets.keySet());
+                log.info("State restored from {} in {} ms, offsets: {}, store: {}", path,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), processedOffsets, stateStore.stats());
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to restore state snapshot " + path, e);
+            }
+        }
+
+        long interval = aggregatorSettingsConfig.getSnapshotInterval().toMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aggregator-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshot, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public Lock processingLock() {
+        return lock.readLock();
+    }
+
+    // called under the processing lock, right after the records were applied to the store
+    public void recordProcessed(ConsumerRecords<?, ?> records) {
+        for (TopicPartition partition : records.partitions()) {
+            List<? extends ConsumerRecord<?, ?>> partitionRecords = records.records(partition);
+            processedOffsets.put(partition, partitionRecords.get(partitionRecords.size() - 1).offset() + 1);
+        }
+    }
+
+    /**
+     * Positions newly assigned partitions at the restored snapshot instead of the committed offsets,
+     * which may be ahead of it. Applies once per partition; later rebalances use the committed offsets.
+     */
+    public void seekRestored(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        synchronized (this) {
+            if (pendingSeeks == null) {
+                return;
+            }
+            for (TopicPartition partition : partitions) {
+                if (pendingSeeks.remove(partition)) {
+                    consumer.seek(partition, processedOffsets.get(partition));
+                    log.info("Partition {} positioned at snapshot offset {}", partition, processedOffsets.get(partition));
+                } else if (!processedOffsets.containsKey(partition)) {
+                    // nothing of this partition is in the snapshot yet
+                    consumer.seekToBeginning(List.of(partition));
+                    log.info("Partition {} is not in the snapshot, reading it from the beginning", partition);
+                }
+            }
+        }
+    }
+
+    public void snapshot() {
+        Path path = snapshotPath();
+        if (path == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            // similarities of the records covered by the snapshot must not be lost with the producer buffer
+            producer.flush();
+            Map<TopicPartition, Long> offsets = new HashMap<>(processedOffsets);
+            long size = StateSnapshots.write(path, stateStore, interactionWindow, offsets);
+            log.info("State snapshot written to {}: {} bytes in {} ms, offsets: {}", path, size,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), offsets);
+        } catch (Exception e) {
+            log.error("Failed to write state snapshot {}: {}", path, e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+    }
+
+    private Path snapshotPath() {
+        String path = aggregatorSettingsConfig.getSnapshotPath();
+        return path == null || path.isBlank() ? null : Path.of(path);
+    }
+}
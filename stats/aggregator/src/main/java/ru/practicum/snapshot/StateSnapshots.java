@@ -0,0 +1,166 @@
+package ru.practicum.snapshot;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.apache.kafka.common.TopicPartition;
+import ru.practicum.storage.InteractionWindow;
+import ru.practicum.storage.SimilarityStateStore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary snapshot of a {@link SimilarityStateStore} together with the input offsets it reflects.
+ * <pre>
+ * int magic, int version, long createdAt
+ * int partitions,   {int topicLength, byte[] topic, int partition, long nextOffset}
+ * long userWeights, {long userId, long eventId, double weight}
+ * long eventSums,   {long eventId, double sum}
+ * long minSums,     {long eventA, long eventB, double sum}
+ * long similarities,{long eventA, long eventB, double score}
+ * long interactions,{long userId, long eventId, long timestamp}   (since version 2, in window order)
+ * int magic
+ * </pre>
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class StateSnapshots {
+
+    private static final int MAGIC = 0x41475353;
+    private static final int VERSION = 2;
+
+    private static final int PAIR_ENTRY_BYTES = 2 * Long.BYTES + Double.BYTES;
+    private static final int EVENT_ENTRY_BYTES = Long.BYTES + Double.BYTES;
+    private static final int INTERACTION_ENTRY_BYTES = 3 * Long.BYTES;
+
+    /**
+     * Writes the snapshot next to {@code path} and atomically moves it in place, so a crash while
+     * writing leaves the previous snapshot intact. Returns the snapshot size in bytes.
+     */
+    public static long write(Path path, SimilarityStateStore store, InteractionWindow window,
+                             Map<TopicPartition, Long> offsets) throws IOException {
+        long[] counts = new long[5];
+        store.forEachUserWeight((userId, eventId, weight) -> counts[0]++);
+        store.forEachEventWeightSum((eventId, sum) -> counts[1]++);
+        store.forEachMinWeightSum((first, second, sum) -> counts[2]++);
+        store.forEachSimilarity((first, second, score) -> counts[3]++);
+        window.forEachInteraction((userId, eventId, timestamp) -> counts[4]++);
+
+        Map<TopicPartition, byte[]> topics = new HashMap<>();
+        long size = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+        for (TopicPartition partition : offsets.keySet()) {
+            byte[] topic = partition.topic().getBytes(StandardCharsets.UTF_8);
+            topics.put(partition, topic);
+            size += Integer.BYTES + topic.length + Integer.BYTES + Long.BYTES;
+        }
+        size += 5 * Long.BYTES
+                + counts[0] * PAIR_ENTRY_BYTES
+                + counts[1] * EVENT_ENTRY_BYTES
+                + (counts[2] + counts[3]) * PAIR_ENTRY_BYTES
+                + counts[4] * INTERACTION_ENTRY_BYTES
+                + Integer.BYTES;
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (MappedFileWriter out = new MappedFileWriter(tmp, size)) {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(System.currentTimeMillis());
+
+            out.putInt(offsets.size());
+            offsets.forEach((partition, offset) -> {
+                byte[] topic = topics.get(partition);
+                out.putInt(topic.length);
+                out.putBytes(topic);
+                out.putInt(partition.partition());
+                out.putLong(offset);
+            });
+
+            out.putLong(counts[0]);
+            store.forEachUserWeight((userId, eventId, weight) -> {
+                out.putLong(userId);
+                out.putLong(eventId);
+                out.putDouble(weight);
+            });
+            out.putLong(counts[1]);
+            store.forEachEventWeightSum((eventId, sum) -> {
+                out.putLong(eventId);
+                out.putDouble(sum);
+            });
+            out.putLong(counts[2]);
+            store.forEachMinWeightSum((first, second, sum) -> {
+                out.putLong(first);
+                out.putLong(second);
+                out.putDouble(sum);
+            });
+            out.putLong(counts[3]);
+            store.forEachSimilarity((first, second, score) -> {
+                out.putLong(first);
+                out.putLong(second);
+                out.putDouble(score);
+            });
+            out.putLong(counts[4]);
+            window.forEachInteraction((userId, eventId, timestamp) -> {
+                out.putLong(userId);
+                out.putLong(eventId);
+                out.putLong(timestamp);
+            });
+            out.putInt(MAGIC);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * Loads the snapshot into an empty store and window and returns the offsets to resume consumption from.
+     */
+    public static Map<TopicPartition, Long> read(Path path, SimilarityStateStore store, InteractionWindow window)
+            throws IOException {
+        try (MappedFileReader in = new MappedFileReader(path)) {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalStateException("Not an aggregator snapshot: " + path);
+            }
+            int version = in.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalStateException("Unsupported snapshot version " + version + ": " + path);
+            }
+            in.getLong();
+
+            int partitions = in.getInt();
+            Map<TopicPartition, Long> offsets = new HashMap<>();
+            for (int i = 0; i < partitions; i++) {
+                String topic = new String(in.getBytes(in.getInt()), StandardCharsets.UTF_8);
+                int partition = in.getInt();
+                offsets.put(new TopicPartition(topic, partition), in.getLong());
+            }
+
+            for (long i = in.getLong(); i > 0; i--) {
+                store.putUserWeight(in.getLong(), in.getLong(), in.getDouble());
+            }
+            for (long i = in.getLong(); i > 0; i--) {
+                store.addEventWeightSum(in.getLong(), in.getDouble());
+            }
+            for (long i = in.getLong(); i > 0; i--) {
+                store.addMinWeightSum(in.getLong(), in.getLong(), in.getDouble());
+            }
+            for (long i = in.getLong(); i > 0; i--) {
+                store.putSimilarity(in.getLong(), in.getLong(), in.getDouble());
+            }
+            if (version >= 2) {
+                for (long i = in.getLong(); i > 0; i--) {
+                    window.record(in.getLong(), in.getLong(), in.getLong());
+                }
+            }
+            if (in.getInt() != MAGIC) {
+                throw new IllegalStateException("Snapshot is corrupted: " + path);
+            }
+            return offsets;
+        }
+    }
+}
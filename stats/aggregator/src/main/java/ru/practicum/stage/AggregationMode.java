@@ -0,0 +1,7 @@
+package ru.practicum.stage;
+
+public enum AggregationMode {
+    SINGLE,
+    USER_STAGE,
+    PAIR_STAGE
+}
@@ -0,0 +1,39 @@
+package ru.practicum.stage;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.List;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ChangelogRestorer {
+
+    private static final Duration RESTORE_POLL_TIMEOUT = Duration.ofMillis(200);
+
+    /**
+     * Reads a changelog partition from the beginning up to its current end offset.
+     * Returns the number of records applied.
+     */
+    public static <V> long restore(Consumer<String, V> restoreConsumer, TopicPartition partition,
+                                   java.util.function.Consumer<V> apply) {
+        restoreConsumer.assign(List.of(partition));
+        restoreConsumer.seekToBeginning(List.of(partition));
+        long endOffset = restoreConsumer.endOffsets(List.of(partition)).get(partition);
+
+        long restored = 0;
+        while (restoreConsumer.position(partition) < endOffset) {
+            for (ConsumerRecord<String, V> record : restoreConsumer.poll(RESTORE_POLL_TIMEOUT)) {
+                if (record.value() != null) {
+                    apply.accept(record.value());
+                    restored++;
+                }
+            }
+        }
+        restoreConsumer.unsubscribe();
+        return restored;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.stage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import ru.practicum.ewm.stats.avro.EventWeightSumAvro;
+import ru.practicum.storage.primitive.LongDoubleHashMap;
+import ru.practicum.storage.primitive.LongPairDoubleHashMap;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Instance-wide view of event weight sums for stage two. Every pair-stage instance reads all partitions of
+ * the compacted partial-sum topic, so any pair can be scored no matter which instance owns it.
+ */
+@Slf4j
+public class EventWeightSumView implements Runnable {
+
+    private final String topic;
+    private final Consumer<String, EventWeightSumAvro> consumer;
+    private final CountDownLatch caughtUp = new CountDownLatch(1);
+
+    private final LongPairDoubleHashMap partialSums = new LongPairDoubleHashMap();
+    private final LongDoubleHashMap totalSums = new LongDoubleHashMap();
+
+    public EventWeightSumView(String topic, Consumer<String, EventWeightSumAvro> consumer) {
+        this.topic = topic;
+        this.consumer = consumer;
+    }
+
+    public double getEventWeightSum(long eventId) {
+        synchronized (totalSums) {
+            return totalSums.get(eventId, 0.0);
+        }
+    }
+
+    /**
+     * Total weight sum of the event with the given partition's share taken as at least {@code partitionSum}.
+     * Partial sums only grow, so a share carried by a record is never older than the one in the view.
+     */
+    public double getEventWeightSum(long eventId, int partition, double partitionSum) {
+        synchronized (totalSums) {
+            double visible = partialSums.get(partition, eventId, 0.0);
+            return totalSums.get(eventId, 0.0) - visible + Math.max(visible, partitionSum);
+        }
+    }
+
+    public void awaitCaughtUp() throws InterruptedException {
+        caughtUp.await();
+    }
+
+    public void wakeup() {
+        consumer.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                    .map(PartitionInfo::partition)
+                    .map(partition -> new TopicPartition(topic, partition))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            while (true) {
+                for (ConsumerRecord<String, EventWeightSumAvro> record : consumer.poll(Duration.ofMillis(200))) {
+                    if (record.value() != null) {
+                        apply(record.value());
+                    }
+                }
+                if (caughtUp.getCount() > 0 && reached(endOffsets)) {
+                    log.info("Event weight sums loaded: {} events", totalSums.size());
+                    caughtUp.countDown();
+                }
+            }
+        } catch (WakeupException ignored) {
+
+        } catch (Exception e) {
+            log.error("Event weight sum reader failed: {}", e.getMessage(), e);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    void apply(EventWeightSumAvro sum) {
+        long partition = sum.getSourcePartition();
+        long eventId = sum.getEventId();
+        synchronized (totalSums) {
+            double previous = partialSums.get(partition, eventId, 0.0);
+            partialSums.put(partition, eventId, sum.getSum());
+            totalSums.addTo(eventId, sum.getSum() - previous);
+        }
+    }
+
+    private boolean reached(Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.stage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.AggregatorSettingsConfig;
+import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.config.StageKafkaClients;
+import ru.practicum.serialization.EventPairDeltaAvroDeserializer;
+import ru.practicum.serialization.EventPairSumAvroDeserializer;
+import ru.practicum.serialization.EventWeightSumAvroDeserializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "aggregator.settings", name = "mode", havingValue = "pair-stage")
+public class PairStageService {
+
+    private final StageKafkaClients kafkaClients;
+    private final KafkaSettingsConfig settingsConfig;
+    private final AggregatorSettingsConfig aggregatorSettingsConfig;
+
+    private final List<PairStageWorker> workers = new ArrayList<>();
+
+    @PostConstruct
+    public void init() throws InterruptedException {
+        try (Admin admin = kafkaClients.admin()) {
+            StageTopics.ensureTopic(admin, settingsConfig.getPairDelta(),
+                    aggregatorSettingsConfig.getPairPartitions(), false);
+            int pairPartitions = StageTopics.partitionsOf(admin, settingsConfig.getPairDelta());
+            StageTopics.ensureTopic(admin, settingsConfig.getPairChangelog(), pairPartitions, true);
+            StageTopics.ensureTopic(admin, settingsConfig.getEventWeightSum(),
+                    StageTopics.partitionsOf(admin, settingsConfig.getAction()), true);
+        }
+
+        EventWeightSumView eventWeightSums = new EventWeightSumView(settingsConfig.getEventWeightSum(),
+                kafkaClients.assignedConsumer(EventWeightSumAvroDeserializer.class));
+        Thread viewThread = new Thread(eventWeightSums);
+        viewThread.setName("aggregator-event-sums");
+        viewThread.start();
+        eventWeightSums.awaitCaughtUp();
+
+        int workerCount = Math.max(1, aggregatorSettingsConfig.getWorkers());
+        String instanceId = UUID.randomUUID().toString();
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new PairStageWorker(settingsConfig,
+                    kafkaClients.groupConsumer(StageKafkaClients.PAIR_STAGE_GROUP, EventPairDeltaAvroDeserializer.class),
+                    kafkaClients.assignedConsumer(EventPairSumAvroDeserializer.class),
+                    kafkaClients.transactionalProducer("aggregator-pair-stage-" + instanceId + "-" + i),
+                    eventWeightSums));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            workers.forEach(PairStageWorker::wakeup);
+            eventWeightSums.wakeup();
+        }));
+
+        for (int i = 0; i < workerCount; i++) {
+            Thread thread = new Thread(workers.get(i));
+            thread.setName("aggregator-pair-stage-" + i);
+            thread.start();
+        }
+        log.info("Pair stage started with {} workers", workerCount);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.practicum.stage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.ewm.stats.avro.EventPairDeltaAvro;
+import ru.practicum.ewm.stats.avro.EventPairSumAvro;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.storage.primitive.LongPairDoubleHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stage two: partitioned by event pair. Owns the pair min-weight sums of its partitions and emits
+ * the similarity of every pair that received a delta.
+ */
+@Slf4j
+public class PairStageWorker extends TransactionalStageWorker<EventPairDeltaAvro> {
+
+    private final KafkaSettingsConfig settingsConfig;
+    private final Consumer<String, EventPairSumAvro> restoreConsumer;
+    private final EventWeightSumView eventWeightSums;
+    private final Map<Integer, LongPairDoubleHashMap> states = new HashMap<>();
+
+    public PairStageWorker(KafkaSettingsConfig settingsConfig,
+                           Consumer<String, EventPairDeltaAvro> consumer,
+                           Consumer<String, EventPairSumAvro> restoreConsumer,
+                           Producer<String, SpecificRecordBase> producer,
+                           EventWeightSumView eventWeightSums) {
+        super(settingsConfig.getPairDelta(), consumer, producer);
+        this.settingsConfig = settingsConfig;
+        this.restoreConsumer = restoreConsumer;
+        this.eventWeightSums = eventWeightSums;
+    }
+
+    @Override
+    protected void restorePartition(int partition) {
+        LongPairDoubleHashMap state = new LongPairDoubleHashMap();
+        long restored = ChangelogRestorer.restore(restoreConsumer,
+                new TopicPartition(settingsConfig.getPairChangelog(), partition),
+                sum -> state.put(sum.getEventA(), sum.getEventB(), sum.getSum()));
+        states.put(partition, state);
+        log.info("Pair stage partition {} restored: {} records, {} pairs", partition, restored, state.size());
+    }
+
+    @Override
+    protected void dropPartition(int partition) {
+        states.remove(partition);
+    }
+
+    @Override
+    protected void process(int partition, ConsumerRecord<String, EventPairDeltaAvro> record) {
+        EventPairDeltaAvro delta = record.value();
+        long first = delta.getEventA();
+        long second = delta.getEventB();
+
+        double updatedMinSum = states.get(partition).addTo(first, second, delta.getDelta());
+        producer.send(new ProducerRecord<>(settingsConfig.getPairChangelog(), partition, record.key(),
+                new EventPairSumAvro(first, second, updatedMinSum)));
+
+        double denominator = Math.sqrt(eventWeightSum(first, delta.getSourcePartition(), delta.getSumA()))
+                * Math.sqrt(eventWeightSum(second, delta.getSourcePartition(), delta.getSumB()));
+        if (denominator == 0) {
+            // only a delta written before the sums were carried along can get here
+            log.warn("Weight sums for pair {} are not known, similarity not emitted", record.key());
+            return;
+        }
+
+        EventSimilarityAvro message = EventSimilarityAvro.newBuilder()
+                .setEventA(first)
+                .setEventB(second)
+                .setScore(updatedMinSum / denominator)
+                .setTimestamp(delta.getTimestamp())
+                .build();
+        producer.send(new ProducerRecord<>(settingsConfig.getSimilarity(), record.key(), message));
+    }
+
+    // the view is read asynchronously and may lag, the delta's own partition share is always current
+    private double eventWeightSum(long eventId, int sourcePartition, double sourceSum) {
+        if (sourcePartition < 0) {
+            return eventWeightSums.getEventWeightSum(eventId);
+        }
+        return eventWeightSums.getEventWeightSum(eventId, sourcePartition, sourceSum);
+    }
+
+    @Override
+    protected void onClose() {
+        restoreConsumer.close();
+    }
+}
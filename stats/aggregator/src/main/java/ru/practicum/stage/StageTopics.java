@@ -0,0 +1,65 @@
+package ru.practicum.stage;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.TopicExistsException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class StageTopics {
+
+    public static int partitionsOf(Admin admin, String topic) {
+        return describe(admin, topic)
+                .map(description -> description.partitions().size())
+                .orElseThrow(() -> new IllegalStateException("Topic " + topic + " doesn't exist"));
+    }
+
+    public static void ensureTopic(Admin admin, String topic, int partitions, boolean compacted) {
+        Optional<TopicDescription> existing = describe(admin, topic);
+        if (existing.isPresent()) {
+            int actual = existing.get().partitions().size();
+            if (compacted && actual != partitions) {
+                throw new IllegalStateException(
+                        "Changelog " + topic + " has " + actual + " partitions, expected " + partitions);
+            }
+            return;
+        }
+
+        NewTopic newTopic = new NewTopic(topic, Optional.of(partitions), Optional.empty());
+        if (compacted) {
+            newTopic.configs(Map.of(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT));
+        }
+        try {
+            admin.createTopics(List.of(newTopic)).all().get();
+            log.info("Topic created: {}, partitions: {}, compacted: {}", topic, partitions, compacted);
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof TopicExistsException)) {
+                throw new IllegalStateException("Failed to create topic " + topic, e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating topic " + topic, e);
+        }
+    }
+
+    private static Optional<TopicDescription> describe(Admin admin, String topic) {
+        try {
+            return Optional.of(admin.describeTopics(List.of(topic)).allTopicNames().get().get(topic));
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while describing topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.stage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.OutOfOrderSequenceException;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consume-transform-produce loop shared by both stages. Every poll is processed in one Kafka transaction
+ * together with its input offsets, so a stage instance that dies or loses partitions never leaves
+ * half-applied deltas behind. Partition state is rebuilt from a compacted changelog on assignment.
+ */
+@Slf4j
+public abstract class TransactionalStageWorker<V> implements Runnable, ConsumerRebalanceListener {
+
+    private final String inputTopic;
+    protected final Consumer<String, V> consumer;
+    protected final Producer<String, SpecificRecordBase> producer;
+
+    protected TransactionalStageWorker(String inputTopic, Consumer<String, V> consumer,
+                                       Producer<String, SpecificRecordBase> producer) {
+        this.inputTopic = inputTopic;
+        this.consumer = consumer;
+        this.producer = producer;
+    }
+
+    protected abstract void restorePartition(int partition);
+
+    protected abstract void dropPartition(int partition);
+
+    protected abstract void process(int partition, ConsumerRecord<String, V> record);
+
+    protected void beforePoll() {
+    }
+
+    protected void onClose() {
+    }
+
+    @Override
+    public void run() {
+        try {
+            producer.initTransactions();
+            consumer.subscribe(List.of(inputTopic), this);
+            log.info("topic subscribed: {}", inputTopic);
+
+            while (true) {
+                beforePoll();
+                ConsumerRecords<String, V> records = consumer.poll(Duration.ofMillis(500));
+                if (records.isEmpty()) {
+                    continue;
+                }
+                log.debug("Records received: {}", records.count());
+                processInTransaction(records);
+            }
+        } catch (WakeupException ignored) {
+
+        } catch (Exception e) {
+            log.error("Processing failed: {}", e.getMessage(), e);
+        } finally {
+            try {
+                consumer.close();
+                producer.close();
+                onClose();
+                log.info("stage worker for {} closed", inputTopic);
+            } catch (Exception e) {
+                log.error("Error closing stage worker: {}", e.getMessage());
+            }
+        }
+    }
+
+    public void wakeup() {
+        consumer.wakeup();
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        log.info("Partitions revoked: {}", partitions);
+        partitions.forEach(tp -> dropPartition(tp.partition()));
+    }
+
+    @Override
+    public void onPartitionsLost(Collection<TopicPartition> partitions) {
+        log.warn("Partitions lost: {}", partitions);
+        partitions.forEach(tp -> dropPartition(tp.partition()));
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        log.info("Partitions assigned: {}", partitions);
+        partitions.forEach(tp -> restorePartition(tp.partition()));
+    }
+
+    private void processInTransaction(ConsumerRecords<String, V> records) {
+        producer.beginTransaction();
+        try {
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (TopicPartition partition : records.partitions()) {
+                List<ConsumerRecord<String, V>> partitionRecords = records.records(partition);
+                for (ConsumerRecord<String, V> record : partitionRecords) {
+                    process(partition.partition(), record);
+                }
+                long nextOffset = partitionRecords.get(partitionRecords.size() - 1).offset() + 1;
+                offsets.put(partition, new OffsetAndMetadata(nextOffset));
+            }
+            producer.sendOffsetsToTransaction(offsets, consumer.groupMetadata());
+            producer.commitTransaction();
+        } catch (ProducerFencedException | OutOfOrderSequenceException | AuthorizationException e) {
+            throw e;
+        } catch (KafkaException e) {
+            log.warn("Transaction aborted, rewinding partitions {}: {}", records.partitions(), e.getMessage());
+            producer.abortTransaction();
+            rewind(records.partitions());
+        }
+    }
+
+    // in-memory state already contains the aborted updates, so it is rebuilt from the committed changelog
+    private void rewind(Set<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(partitions);
+        for (TopicPartition partition : partitions) {
+            dropPartition(partition.partition());
+            restorePartition(partition.partition());
+            OffsetAndMetadata offset = committed.get(partition);
+            if (offset == null) {
+                consumer.seekToBeginning(List.of(partition));
+            } else {
+                consumer.seek(partition, offset);
+            }
+        }
+    }
+}
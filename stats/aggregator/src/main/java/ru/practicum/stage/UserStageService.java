@@ -0,0 +1,58 @@
+package ru.practicum.stage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.AggregatorSettingsConfig;
+import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.config.StageKafkaClients;
+import ru.practicum.serialization.UserActionAvroDeserializer;
+import ru.practicum.serialization.UserEventWeightAvroDeserializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "aggregator.settings", name = "mode", havingValue = "user-stage")
+public class UserStageService {
+
+    private final StageKafkaClients kafkaClients;
+    private final KafkaSettingsConfig settingsConfig;
+    private final AggregatorSettingsConfig aggregatorSettingsConfig;
+
+    private final List<UserStageWorker> workers = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        try (Admin admin = kafkaClients.admin()) {
+            int actionPartitions = StageTopics.partitionsOf(admin, settingsConfig.getAction());
+            StageTopics.ensureTopic(admin, settingsConfig.getUserChangelog(), actionPartitions, true);
+            StageTopics.ensureTopic(admin, settingsConfig.getPairDelta(),
+                    aggregatorSettingsConfig.getPairPartitions(), false);
+            StageTopics.ensureTopic(admin, settingsConfig.getEventWeightSum(), actionPartitions, true);
+        }
+
+        int workerCount = Math.max(1, aggregatorSettingsConfig.getWorkers());
+        String instanceId = UUID.randomUUID().toString();
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new UserStageWorker(settingsConfig,
+                    kafkaClients.groupConsumer(StageKafkaClients.USER_STAGE_GROUP, UserActionAvroDeserializer.class),
+                    kafkaClients.assignedConsumer(UserEventWeightAvroDeserializer.class),
+                    kafkaClients.transactionalProducer("aggregator-user-stage-" + instanceId + "-" + i)));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> workers.forEach(UserStageWorker::wakeup)));
+
+        for (int i = 0; i < workerCount; i++) {
+            Thread thread = new Thread(workers.get(i));
+            thread.setName("aggregator-user-stage-" + i);
+            thread.start();
+        }
+        log.info("User stage started with {} workers", workerCount);
+    }
+}
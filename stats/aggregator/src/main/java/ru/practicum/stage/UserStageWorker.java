@@ -0,0 +1,117 @@
+package ru.practicum.stage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.converter.WeightConverter;
+import ru.practicum.ewm.stats.avro.EventPairDeltaAvro;
+import ru.practicum.ewm.stats.avro.EventWeightSumAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.avro.UserEventWeightAvro;
+import ru.practicum.storage.primitive.LongDoubleHashMap;
+import ru.practicum.storage.primitive.LongObjectHashMap;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stage one: partitioned by user. Owns the user -> (event, weight) index of its partitions and turns every
+ * weight increase into per-pair min-weight deltas plus the partition's partial weight sum of the event.
+ * Each delta also carries this partition's partial sums of both events, so stage two can score the pair
+ * without waiting for them to reach its weight sum view.
+ */
+@Slf4j
+public class UserStageWorker extends TransactionalStageWorker<UserActionAvro> {
+
+    private final KafkaSettingsConfig settingsConfig;
+    private final Consumer<String, UserEventWeightAvro> restoreConsumer;
+    private final Map<Integer, PartitionState> states = new HashMap<>();
+
+    public UserStageWorker(KafkaSettingsConfig settingsConfig,
+                           Consumer<String, UserActionAvro> consumer,
+                           Consumer<String, UserEventWeightAvro> restoreConsumer,
+                           Producer<String, SpecificRecordBase> producer) {
+        super(settingsConfig.getAction(), consumer, producer);
+        this.settingsConfig = settingsConfig;
+        this.restoreConsumer = restoreConsumer;
+    }
+
+    @Override
+    protected void restorePartition(int partition) {
+        PartitionState state = new PartitionState();
+        long restored = ChangelogRestorer.restore(restoreConsumer,
+                new TopicPartition(settingsConfig.getUserChangelog(), partition),
+                weight -> state.apply(weight.getUserId(), weight.getEventId(), weight.getWeight()));
+        states.put(partition, state);
+        log.info("User stage partition {} restored: {} weights, {} users", partition, restored, state.users.size());
+    }
+
+    @Override
+    protected void dropPartition(int partition) {
+        states.remove(partition);
+    }
+
+    @Override
+    protected void process(int partition, ConsumerRecord<String, UserActionAvro> record) {
+        UserActionAvro action = record.value();
+        long userId = action.getUserId();
+        long eventId = action.getEventId();
+        double newWeight = WeightConverter.getWeightOnAction(action.getActionType());
+
+        PartitionState state = states.get(partition);
+        LongDoubleHashMap userEvents = state.users.computeIfAbsent(userId, k -> new LongDoubleHashMap(1));
+        double oldWeight = userEvents.get(eventId, 0.0);
+        if (oldWeight >= newWeight) {
+            return;
+        }
+
+        double eventSum = state.apply(userId, eventId, newWeight);
+
+        producer.send(new ProducerRecord<>(settingsConfig.getUserChangelog(), partition, userId + ":" + eventId,
+                new UserEventWeightAvro(userId, eventId, newWeight)));
+        producer.send(new ProducerRecord<>(settingsConfig.getEventWeightSum(), partition + ":" + eventId,
+                new EventWeightSumAvro(eventId, partition, eventSum)));
+
+        Instant timestamp = action.getTimestamp();
+        userEvents.forEach((currentEventId, userConvergenceWeight) -> {
+            if (currentEventId == eventId) return;
+
+            long first = Math.min(eventId, currentEventId);
+            long second = Math.max(eventId, currentEventId);
+            double delta = Math.min(newWeight, userConvergenceWeight) - Math.min(oldWeight, userConvergenceWeight);
+
+            double currentEventSum = state.eventSums.get(currentEventId, 0.0);
+            producer.send(new ProducerRecord<>(settingsConfig.getPairDelta(), first + ":" + second,
+                    new EventPairDeltaAvro(first, second, delta, timestamp, partition,
+                            first == eventId ? eventSum : currentEventSum,
+                            first == eventId ? currentEventSum : eventSum)));
+        });
+    }
+
+    @Override
+    protected void onClose() {
+        restoreConsumer.close();
+    }
+
+    private static final class PartitionState {
+        private final LongObjectHashMap<LongDoubleHashMap> users = new LongObjectHashMap<>();
+        // this partition's share of each event's weight sum; stage two adds the shares up
+        private final LongDoubleHashMap eventSums = new LongDoubleHashMap();
+
+        private double apply(long userId, long eventId, double weight) {
+            LongDoubleHashMap userEvents = users.computeIfAbsent(userId, k -> new LongDoubleHashMap(1));
+            double oldWeight = userEvents.get(eventId, 0.0);
+            if (oldWeight >= weight) {
+                return eventSums.get(eventId, 0.0);
+            }
+            userEvents.put(eventId, weight);
+            return eventSums.addTo(eventId, weight - oldWeight);
+        }
+    }
+}
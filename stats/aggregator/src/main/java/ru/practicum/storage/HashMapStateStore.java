@@ -0,0 +1,167 @@
+package ru.practicum.storage;
+
+import ru.practicum.storage.primitive.LongDoubleConsumer;
+import ru.practicum.storage.primitive.LongLongDoubleConsumer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class HashMapStateStore implements SimilarityStateStore {
+
+    // map node + boxed Long key + boxed Double value + table slot
+    private static final long BOXED_ENTRY_BYTES = 32 + 16 + 16 + 4;
+    // the same plus RelationEvent key with two boxed Longs inside
+    private static final long RELATION_ENTRY_BYTES = BOXED_ENTRY_BYTES - 16 + 24 + 16 + 16;
+    private static final long NESTED_MAP_BYTES = 48 + 16 + 4 * 16;
+
+    private final Map<Long, Double> eventWeightSumMap;
+    private final Map<RelationEvent, Double> eventsSimilarityMap;
+    private final Map<Long, Map<Long, Double>> usersFeedbackMap;
+    private final Map<Long, Map<Long, Double>> userEventsMap;
+    private final Map<RelationEvent, Double> eventsMinWeightSumMap;
+
+    private final LongAdder userWeights;
+
+    public HashMapStateStore() {
+        usersFeedbackMap = new ConcurrentHashMap<>();
+        userEventsMap = new ConcurrentHashMap<>();
+        eventsMinWeightSumMap = new ConcurrentHashMap<>();
+        eventWeightSumMap = new ConcurrentHashMap<>();
+        eventsSimilarityMap = new ConcurrentHashMap<>();
+        userWeights = new LongAdder();
+    }
+
+    @Override
+    public double getUserWeight(long userId, long eventId) {
+        Map<Long, Double> userRatingsMap = usersFeedbackMap.get(eventId);
+        return userRatingsMap == null ? 0.0 : userRatingsMap.getOrDefault(userId, 0.0);
+    }
+
+    @Override
+    public void putUserWeight(long userId, long eventId, double weight) {
+        // inner maps are written only inside the outer compute, so an emptied one can't be unlinked under a put
+        usersFeedbackMap.compute(eventId, (k, ratings) -> {
+            Map<Long, Double> updated = ratings != null ? ratings : new ConcurrentHashMap<>();
+            if (updated.put(userId, weight) == null) {
+                userWeights.increment();
+            }
+            return updated;
+        });
+        userEventsMap.compute(userId, (k, events) -> {
+            Map<Long, Double> updated = events != null ? events : new ConcurrentHashMap<>();
+            updated.put(eventId, weight);
+            return updated;
+        });
+    }
+
+    @Override
+    public void forEachUserEvent(long userId, LongDoubleConsumer action) {
+        Map<Long, Double> userEvents = userEventsMap.get(userId);
+        if (userEvents != null) {
+            userEvents.forEach(action::accept);
+        }
+    }
+
+    @Override
+    public void removeUserWeight(long userId, long eventId) {
+        usersFeedbackMap.computeIfPresent(eventId, (k, ratings) -> {
+            if (ratings.remove(userId) != null) {
+                userWeights.decrement();
+            }
+            return ratings.isEmpty() ? null : ratings;
+        });
+        userEventsMap.computeIfPresent(userId, (k, events) -> {
+            events.remove(eventId);
+            return events.isEmpty() ? null : events;
+        });
+    }
+
+    @Override
+    public double getEventWeightSum(long eventId) {
+        return eventWeightSumMap.getOrDefault(eventId, 0.0);
+    }
+
+    @Override
+    public double addEventWeightSum(long eventId, double delta) {
+        return eventWeightSumMap.merge(eventId, delta, Double::sum);
+    }
+
+    @Override
+    public double addEventWeightSumOrRemove(long eventId, double delta, double removeBelow) {
+        double[] sum = {delta};
+        eventWeightSumMap.compute(eventId, (k, current) -> {
+            sum[0] = current == null ? delta : current + delta;
+            return sum[0] < removeBelow ? null : sum[0];
+        });
+        return sum[0];
+    }
+
+    @Override
+    public double getMinWeightSum(long firstEventId, long secondEventId) {
+        return eventsMinWeightSumMap.getOrDefault(new RelationEvent(firstEventId, secondEventId), 0.0);
+    }
+
+    @Override
+    public double addMinWeightSum(long firstEventId, long secondEventId, double delta) {
+        return eventsMinWeightSumMap.merge(new RelationEvent(firstEventId, secondEventId), delta, Double::sum);
+    }
+
+    @Override
+    public double addMinWeightSumOrRemove(long firstEventId, long secondEventId, double delta, double removeBelow) {
+        double[] sum = {delta};
+        eventsMinWeightSumMap.compute(new RelationEvent(firstEventId, secondEventId), (k, current) -> {
+            sum[0] = current == null ? delta : current + delta;
+            return sum[0] < removeBelow ? null : sum[0];
+        });
+        return sum[0];
+    }
+
+    @Override
+    public double getSimilarity(long firstEventId, long secondEventId) {
+        return eventsSimilarityMap.getOrDefault(new RelationEvent(firstEventId, secondEventId), Double.NaN);
+    }
+
+    @Override
+    public void putSimilarity(long firstEventId, long secondEventId, double score) {
+        eventsSimilarityMap.put(new RelationEvent(firstEventId, secondEventId), score);
+    }
+
+    @Override
+    public void removeSimilarity(long firstEventId, long secondEventId) {
+        eventsSimilarityMap.remove(new RelationEvent(firstEventId, secondEventId));
+    }
+
+    @Override
+    public StateStoreStats stats() {
+        long pairs = eventsMinWeightSumMap.size();
+        long weights = userWeights.sum();
+        long bytes = 2 * weights * BOXED_ENTRY_BYTES
+                + (usersFeedbackMap.size() + userEventsMap.size()) * (BOXED_ENTRY_BYTES - 16 + NESTED_MAP_BYTES)
+                + eventWeightSumMap.size() * BOXED_ENTRY_BYTES
+                + (pairs + eventsSimilarityMap.size()) * RELATION_ENTRY_BYTES;
+        return new StateStoreStats("hash-map", userEventsMap.size(), weights, eventWeightSumMap.size(),
+                pairs, bytes);
+    }
+
+    @Override
+    public void forEachUserWeight(LongLongDoubleConsumer action) {
+        userEventsMap.forEach((userId, userEvents) ->
+                userEvents.forEach((eventId, weight) -> action.accept(userId, eventId, weight)));
+    }
+
+    @Override
+    public void forEachEventWeightSum(LongDoubleConsumer action) {
+        eventWeightSumMap.forEach(action::accept);
+    }
+
+    @Override
+    public void forEachMinWeightSum(LongLongDoubleConsumer action) {
+        eventsMinWeightSumMap.forEach((pair, sum) -> action.accept(pair.first(), pair.second(), sum));
+    }
+
+    @Override
+    public void forEachSimilarity(LongLongDoubleConsumer action) {
+        eventsSimilarityMap.forEach((pair, score) -> action.accept(pair.first(), pair.second(), score));
+    }
+}
@@ -0,0 +1,209 @@
+package ru.practicum.storage;
+
+import ru.practicum.storage.primitive.ArraySizes;
+import ru.practicum.storage.primitive.HashCommon;
+import ru.practicum.storage.primitive.LongLongLongConsumer;
+import ru.practicum.storage.primitive.LongPairLongHashMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding event-time window over user interactions. Remembers when every (user, event) pair was last acted on
+ * and keeps the actions in arrival order, so the ones that fell out of the window are found at the head
+ * without scanning. The watermark is the latest action timestamp seen; actions arriving slightly out of order
+ * are only evicted a little late. Users are spread over stripes with a lock and a queue each, so workers
+ * recording different users rarely meet; arrival order only holds within a stripe, which is all eviction needs.
+ */
+public class InteractionWindow {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long windowMillis;
+    private final Stripe[] stripes;
+    private final AtomicLong watermark = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param windowMillis window length, {@code 0} keeps interactions forever and turns every call into a no-op
+     */
+    public InteractionWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+        this.stripes = new Stripe[windowMillis > 0 ? 1 << STRIPE_BITS : 0];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public boolean isEnabled() {
+        return windowMillis > 0;
+    }
+
+    public void record(long userId, long eventId, long timestamp) {
+        if (!isEnabled()) {
+            return;
+        }
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            if (timestamp <= stripe.lastSeen.get(userId, eventId, Long.MIN_VALUE)) {
+                return;
+            }
+            stripe.lastSeen.put(userId, eventId, timestamp);
+            stripe.append(userId, eventId, timestamp);
+        }
+        // lock-free, the watermark only moves forward
+        long current;
+        while (timestamp > (current = watermark.get()) && !watermark.compareAndSet(current, timestamp)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Moves interactions that are out of the window and were not renewed since into the given arrays.
+     * Returns how many were written, at most the length of the arrays; fewer means none are left.
+     */
+    public int pollExpired(long[] expiredUsers, long[] expiredEvents, long[] expiredTimestamps) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        long cutoff = watermark.get() - windowMillis;
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            if (count == expiredUsers.length) {
+                break;
+            }
+            synchronized (stripe) {
+                count = stripe.pollExpired(cutoff, expiredUsers, expiredEvents, expiredTimestamps, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Drops the interaction if it was not renewed after {@code timestamp}. Called under the user's lock,
+     * right before its weight is removed.
+     */
+    public boolean forget(long userId, long eventId, long timestamp) {
+        if (!isEnabled()) {
+            return false;
+        }
+        Stripe stripe = stripe(userId);
+        synchronized (stripe) {
+            if (stripe.lastSeen.get(userId, eventId, Long.MIN_VALUE) != timestamp) {
+                return false;
+            }
+            stripe.lastSeen.remove(userId, eventId);
+            return true;
+        }
+    }
+
+    public long watermark() {
+        return watermark.get();
+    }
+
+    /**
+     * Live interactions, in arrival order within each stripe, as needed to rebuild the window with
+     * {@link #record}.
+     */
+    public void forEachInteraction(LongLongLongConsumer action) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.forEachInteraction(action);
+            }
+        }
+    }
+
+    public int interactions() {
+        int interactions = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                interactions += stripe.lastSeen.size();
+            }
+        }
+        return interactions;
+    }
+
+    public long sizeInBytes() {
+        long bytes = ArraySizes.of(stripes);
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                bytes += stripe.sizeInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private Stripe stripe(long userId) {
+        return stripes[HashCommon.stripe(userId, STRIPE_BITS)];
+    }
+
+    private static final class Stripe {
+        private final LongPairLongHashMap lastSeen = new LongPairLongHashMap();
+        private long[] users = new long[INITIAL_CAPACITY];
+        private long[] events = new long[INITIAL_CAPACITY];
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private int head;
+        private int size;
+
+        private int pollExpired(long cutoff, long[] expiredUsers, long[] expiredEvents, long[] expiredTimestamps,
+                                int count) {
+            while (size > 0 && count < expiredUsers.length && timestamps[head] < cutoff) {
+                long userId = users[head];
+                long eventId = events[head];
+                long timestamp = timestamps[head];
+                head = (head + 1) % timestamps.length;
+                size--;
+                if (lastSeen.get(userId, eventId, Long.MIN_VALUE) == timestamp) {
+                    expiredUsers[count] = userId;
+                    expiredEvents[count] = eventId;
+                    expiredTimestamps[count] = timestamp;
+                    count++;
+                }
+            }
+            // the buffer follows the window size back down after a burst of activity
+            if (timestamps.length > INITIAL_CAPACITY && size < timestamps.length >> 2) {
+                resize(timestamps.length >> 1);
+            }
+            return count;
+        }
+
+        private void forEachInteraction(LongLongLongConsumer action) {
+            for (int i = 0; i < size; i++) {
+                int pos = (head + i) % timestamps.length;
+                if (lastSeen.get(users[pos], events[pos], Long.MIN_VALUE) == timestamps[pos]) {
+                    action.accept(users[pos], events[pos], timestamps[pos]);
+                }
+            }
+        }
+
+        private long sizeInBytes() {
+            return lastSeen.sizeInBytes() + ArraySizes.of(users) + ArraySizes.of(events) + ArraySizes.of(timestamps);
+        }
+
+        private void append(long userId, long eventId, long timestamp) {
+            if (size == timestamps.length) {
+                resize(timestamps.length << 1);
+            }
+            int tail = (head + size) % timestamps.length;
+            users[tail] = userId;
+            events[tail] = eventId;
+            timestamps[tail] = timestamp;
+            size++;
+        }
+
+        private void resize(int capacity) {
+            long[] newUsers = new long[capacity];
+            long[] newEvents = new long[capacity];
+            long[] newTimestamps = new long[capacity];
+            for (int i = 0; i < size; i++) {
+                int pos = (head + i) % timestamps.length;
+                newUsers[i] = users[pos];
+                newEvents[i] = events[pos];
+                newTimestamps[i] = timestamps[pos];
+            }
+            users = newUsers;
+            events = newEvents;
+            timestamps = newTimestamps;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package ru.practicum.storage;
+
+import ru.practicum.storage.primitive.HashCommon;
+import ru.practicum.storage.primitive.LongDoubleConsumer;
+import ru.practicum.storage.primitive.LongDoubleHashMap;
+import ru.practicum.storage.primitive.LongLongDoubleConsumer;
+import ru.practicum.storage.primitive.LongObjectHashMap;
+import ru.practicum.storage.primitive.PairStateHashMap;
+
+/**
+ * Primitive tables split into lock stripes, so that workers handling different partitions only
+ * contend when they touch the same stripe of event sums or pair sums.
+ */
+public class PrimitiveStateStore implements SimilarityStateStore {
+
+    private final int stripeBits;
+    private final UserStripe[] userStripes;
+    private final EventStripe[] eventStripes;
+    private final PairStripe[] pairStripes;
+
+    public PrimitiveStateStore() {
+        this(1);
+    }
+
+    public PrimitiveStateStore(int stripes) {
+        stripeBits = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(1, stripes) - 1);
+        int count = 1 << stripeBits;
+        userStripes = new UserStripe[count];
+        eventStripes = new EventStripe[count];
+        pairStripes = new PairStripe[count];
+        for (int i = 0; i < count; i++) {
+            userStripes[i] = new UserStripe();
+            eventStripes[i] = new EventStripe();
+            pairStripes[i] = new PairStripe();
+        }
+    }
+
+    @Override
+    public double getUserWeight(long userId, long eventId) {
+        LongDoubleHashMap userEvents = userEvents(userId);
+        return userEvents == null ? 0.0 : userEvents.get(eventId, 0.0);
+    }
+
+    @Override
+    public void putUserWeight(long userId, long eventId, double weight) {
+        UserStripe stripe = userStripes[HashCommon.stripe(userId, stripeBits)];
+        synchronized (stripe) {
+            LongDoubleHashMap userEvents = stripe.userEventsMap.computeIfAbsent(userId, k -> new LongDoubleHashMap(1));
+            int before = userEvents.size();
+            userEvents.put(eventId, weight);
+            stripe.userWeights += userEvents.size() - before;
+        }
+    }
+
+    @Override
+    public void forEachUserEvent(long userId, LongDoubleConsumer action) {
+        LongDoubleHashMap userEvents = userEvents(userId);
+        if (userEvents != null) {
+            userEvents.forEach(action);
+        }
+    }
+
+    @Override
+    public void removeUserWeight(long userId, long eventId) {
+        UserStripe stripe = userStripes[HashCommon.stripe(userId, stripeBits)];
+        synchronized (stripe) {
+            LongDoubleHashMap userEvents = stripe.userEventsMap.get(userId);
+            if (userEvents != null && userEvents.remove(eventId)) {
+                stripe.userWeights--;
+                if (userEvents.isEmpty()) {
+                    stripe.userEventsMap.remove(userId);
+                }
+            }
+        }
+    }
+
+    @Override
+    public double getEventWeightSum(long eventId) {
+        EventStripe stripe = eventStripes[HashCommon.stripe(eventId, stripeBits)];
+        synchronized (stripe) {
+            return stripe.eventWeightSumMap.get(eventId, 0.0);
+        }
+    }
+
+    @Override
+    public double addEventWeightSum(long eventId, double delta) {
+        EventStripe stripe = eventStripes[HashCommon.stripe(eventId, stripeBits)];
+        synchronized (stripe) {
+            return stripe.eventWeightSumMap.addTo(eventId, delta);
+        }
+    }
+
+    @Override
+    public double addEventWeightSumOrRemove(long eventId, double delta, double removeBelow) {
+        EventStripe stripe = eventStripes[HashCommon.stripe(eventId, stripeBits)];
+        synchronized (stripe) {
+            double sum = stripe.eventWeightSumMap.addTo(eventId, delta);
+            if (sum < removeBelow) {
+                stripe.eventWeightSumMap.remove(eventId);
+            }
+            return sum;
+        }
+    }
+
+    @Override
+    public double getMinWeightSum(long firstEventId, long secondEventId) {
+        PairStripe stripe = pairStripes[HashCommon.stripe(firstEventId, secondEventId, stripeBits)];
+        synchronized (stripe) {
+            return stripe.pairs.getSum(firstEventId, secondEventId, 0.0);
+        }
+    }
+
+    @Override
+    public double addMinWeightSum(long firstEventId, long secondEventId, double delta) {
+        PairStripe stripe = pairStripes[HashCommon.stripe(firstEventId, secondEventId, stripeBits)];
+        synchronized (stripe) {
+            return stripe.pairs.addToSum(firstEventId, secondEventId, delta);
+        }
+    }
+
+    @Override
+    public double addMinWeightSumOrRemove(long firstEventId, long secondEventId, double delta, double removeBelow) {
+        PairStripe stripe = pairStripes[HashCommon.stripe(firstEventId, secondEventId, stripeBits)];
+        synchronized (stripe) {
+            double sum = stripe.pairs.addToSum(firstEventId, secondEventId, delta);
+            if (sum < removeBelow) {
+                stripe.pairs.removeSum(firstEventId, secondEventId);
+            }
+            return sum;
+        }
+    }
+
+    @Override
+    public double getSimilarity(long firstEventId, long secondEventId) {
+        PairStripe stripe = pairStripes[HashCommon.stripe(firstEventId, secondEventId, stripeBits)];
+        synchronized (stripe) {
+            return stripe.pairs.getScore(firstEventId, secondEventId, Double.NaN);
+        }
+    }
+
+    @Override
+    public void putSimilarity(long firstEventId, long secondEventId, double score) {
+        PairStripe stripe = pairStripes[HashCommon.stripe(firstEventId, secondEventId, stripeBits)];
+        synchronized (stripe) {
+            stripe.pairs.putScore(firstEventId, secondEventId, score);
+        }
+    }
+
+    @Override
+    public void removeSimilarity(long firstEventId, long secondEventId) {
+        PairStripe stripe = pairStripes[HashCommon.stripe(firstEventId, secondEventId, stripeBits)];
+        synchronized (stripe) {
+            stripe.pairs.removeScore(firstEventId, secondEventId);
+        }
+    }
+
+    @Override
+    public StateStoreStats stats() {
+        long users = 0;
+        long userWeights = 0;
+        long events = 0;
+        long pairs = 0;
+        long[] bytes = {0};
+        for (UserStripe stripe : userStripes) {
+            synchronized (stripe) {
+                users += stripe.userEventsMap.size();
+                userWeights += stripe.userWeights;
+                bytes[0] += stripe.userEventsMap.sizeInBytes();
+                stripe.userEventsMap.forEach((userId, userEvents) -> bytes[0] += userEvents.sizeInBytes());
+            }
+        }
+        for (EventStripe stripe : eventStripes) {
+            synchronized (stripe) {
+                events += stripe.eventWeightSumMap.size();
+                bytes[0] += stripe.eventWeightSumMap.sizeInBytes();
+            }
+        }
+        for (PairStripe stripe : pairStripes) {
+            synchronized (stripe) {
+                pairs += stripe.pairs.sums();
+                bytes[0] += stripe.pairs.sizeInBytes();
+            }
+        }
+        return new StateStoreStats("primitive", users, userWeights, events, pairs, bytes[0]);
+    }
+
+    @Override
+    public void forEachUserWeight(LongLongDoubleConsumer action) {
+        for (UserStripe stripe : userStripes) {
+            synchronized (stripe) {
+                stripe.userEventsMap.forEach((userId, userEvents) ->
+                        userEvents.forEach((eventId, weight) -> action.accept(userId, eventId, weight)));
+            }
+        }
+    }
+
+    @Override
+    public void forEachEventWeightSum(LongDoubleConsumer action) {
+        for (EventStripe stripe : eventStripes) {
+            synchronized (stripe) {
+                stripe.eventWeightSumMap.forEach(action);
+            }
+        }
+    }
+
+    @Override
+    public void forEachMinWeightSum(LongLongDoubleConsumer action) {
+        for (PairStripe stripe : pairStripes) {
+            synchronized (stripe) {
+                stripe.pairs.forEachSum(action);
+            }
+        }
+    }
+
+    @Override
+    public void forEachSimilarity(LongLongDoubleConsumer action) {
+        for (PairStripe stripe : pairStripes) {
+            synchronized (stripe) {
+                stripe.pairs.forEachScore(action);
+            }
+        }
+    }
+
+    private LongDoubleHashMap userEvents(long userId) {
+        UserStripe stripe = userStripes[HashCommon.stripe(userId, stripeBits)];
+        synchronized (stripe) {
+            return stripe.userEventsMap.get(userId);
+        }
+    }
+
+    private static final class UserStripe {
+        private final LongObjectHashMap<LongDoubleHashMap> userEventsMap = new LongObjectHashMap<>();
+        private long userWeights;
+    }
+
+    private static final class EventStripe {
+        private final LongDoubleHashMap eventWeightSumMap = new LongDoubleHashMap();
+    }
+
+    private static final class PairStripe {
+        // min-weight sum and last emitted score of a pair side by side, under one copy of its key
+        private final PairStateHashMap pairs = new PairStateHashMap();
+    }
+}
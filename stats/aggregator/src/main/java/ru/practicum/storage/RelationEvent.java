@@ -1,4 +1,4 @@
-package ru.practicum.service;
+package ru.practicum.storage;
 
 public record RelationEvent(Long first, Long second) {
 
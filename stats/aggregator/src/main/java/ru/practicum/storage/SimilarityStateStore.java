@@ -0,0 +1,64 @@
+package ru.practicum.storage;
+
+import ru.practicum.storage.primitive.LongDoubleConsumer;
+import ru.practicum.storage.primitive.LongLongDoubleConsumer;
+
+/**
+ * State the aggregator needs to keep event similarities up to date incrementally.
+ * Event pairs are always passed in normalized order: {@code firstEventId < secondEventId}.
+ * Implementations are thread-safe as long as calls for the same user are not made concurrently;
+ * event and pair sums may be updated from any number of threads.
+ */
+public interface SimilarityStateStore {
+
+    double getUserWeight(long userId, long eventId);
+
+    void putUserWeight(long userId, long eventId, double weight);
+
+    void forEachUserEvent(long userId, LongDoubleConsumer action);
+
+    void removeUserWeight(long userId, long eventId);
+
+    double getEventWeightSum(long eventId);
+
+    double addEventWeightSum(long eventId, double delta);
+
+    /**
+     * Adds {@code delta} and drops the sum if the result falls below {@code removeBelow}, in one atomic step,
+     * so that a concurrent add to the same event can't be lost between the two. Returns the updated sum.
+     */
+    double addEventWeightSumOrRemove(long eventId, double delta, double removeBelow);
+
+    /**
+     * Sum of the users' minimum weights of the pair, 0 if no user co-rates it.
+     */
+    double getMinWeightSum(long firstEventId, long secondEventId);
+
+    double addMinWeightSum(long firstEventId, long secondEventId, double delta);
+
+    /**
+     * Same as {@link #addEventWeightSumOrRemove} for the pair's min-weight sum.
+     */
+    double addMinWeightSumOrRemove(long firstEventId, long secondEventId, double delta, double removeBelow);
+
+    /**
+     * Last similarity score emitted for the pair, {@link Double#NaN} if none was emitted yet.
+     */
+    double getSimilarity(long firstEventId, long secondEventId);
+
+    void putSimilarity(long firstEventId, long secondEventId, double score);
+
+    void removeSimilarity(long firstEventId, long secondEventId);
+
+    StateStoreStats stats();
+
+    // full scans for snapshots; callers make sure no updates run concurrently
+
+    void forEachUserWeight(LongLongDoubleConsumer action);
+
+    void forEachEventWeightSum(LongDoubleConsumer action);
+
+    void forEachMinWeightSum(LongLongDoubleConsumer action);
+
+    void forEachSimilarity(LongLongDoubleConsumer action);
+}
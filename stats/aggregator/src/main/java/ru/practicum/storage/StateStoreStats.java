@@ -0,0 +1,13 @@
+package ru.practicum.storage;
+
+public record StateStoreStats(String store,
+                              long users,
+                              long userWeights,
+                              long events,
+                              long pairs,
+                              long estimatedBytes) {
+
+    public double bytesPerPair() {
+        return pairs == 0 ? 0 : (double) estimatedBytes / pairs;
+    }
+}
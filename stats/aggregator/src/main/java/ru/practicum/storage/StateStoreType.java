@@ -0,0 +1,6 @@
+package ru.practicum.storage;
+
+public enum StateStoreType {
+    HASH_MAP,
+    PRIMITIVE
+}
@@ -0,0 +1,121 @@
+package ru.practicum.storage;
+
+import ru.practicum.storage.primitive.ArraySizes;
+import ru.practicum.storage.primitive.LongObjectHashMap;
+
+import java.util.Arrays;
+
+/**
+ * The K best-scoring neighbours of every event, as last emitted. Scores of retained neighbours are updated
+ * in place, a neighbour only leaves its event's list when a better-scoring one takes its slot.
+ * Not thread-safe.
+ */
+public class TopKNeighbourIndex {
+
+    /** The neighbour was already retained or took a free slot. */
+    public static final long ACCEPTED = -1;
+    /** The neighbour scores below all K retained ones. */
+    public static final long REJECTED = -2;
+
+    private final int k;
+    private final LongObjectHashMap<Neighbours> events = new LongObjectHashMap<>();
+
+    public TopKNeighbourIndex(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+    }
+
+    /**
+     * Offers {@code neighbourId} with {@code score} to the list of {@code eventId}.
+     * Returns {@link #ACCEPTED}, {@link #REJECTED} or the id of the neighbour that was evicted to make room.
+     */
+    public long offer(long eventId, long neighbourId, double score) {
+        return events.computeIfAbsent(eventId, key -> new Neighbours()).offer(neighbourId, score, k);
+    }
+
+    public void remove(long eventId, long neighbourId) {
+        Neighbours neighbours = events.get(eventId);
+        if (neighbours != null && neighbours.remove(neighbourId) && neighbours.size == 0) {
+            events.remove(eventId);
+        }
+    }
+
+    public boolean contains(long eventId, long neighbourId) {
+        Neighbours neighbours = events.get(eventId);
+        return neighbours != null && neighbours.indexOf(neighbourId) >= 0;
+    }
+
+    public int events() {
+        return events.size();
+    }
+
+    public long sizeInBytes() {
+        long[] bytes = {0};
+        events.forEach((eventId, neighbours) -> bytes[0] += neighbours.sizeInBytes());
+        return bytes[0];
+    }
+
+    private static final class Neighbours {
+        private long[] ids = new long[4];
+        private double[] scores = new double[4];
+        private int size;
+
+        private long offer(long neighbourId, double score, int k) {
+            int index = indexOf(neighbourId);
+            if (index >= 0) {
+                scores[index] = score;
+                return ACCEPTED;
+            }
+            if (size < k) {
+                if (size == ids.length) {
+                    int capacity = Math.min(k, ids.length << 1);
+                    ids = Arrays.copyOf(ids, capacity);
+                    scores = Arrays.copyOf(scores, capacity);
+                }
+                ids[size] = neighbourId;
+                scores[size] = score;
+                size++;
+                return ACCEPTED;
+            }
+            int min = 0;
+            for (int i = 1; i < size; i++) {
+                if (scores[i] < scores[min]) {
+                    min = i;
+                }
+            }
+            if (score <= scores[min]) {
+                return REJECTED;
+            }
+            long evicted = ids[min];
+            ids[min] = neighbourId;
+            scores[min] = score;
+            return evicted;
+        }
+
+        private boolean remove(long neighbourId) {
+            int index = indexOf(neighbourId);
+            if (index < 0) {
+                return false;
+            }
+            size--;
+            ids[index] = ids[size];
+            scores[index] = scores[size];
+            return true;
+        }
+
+        private int indexOf(long neighbourId) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == neighbourId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private long sizeInBytes() {
+            return ArraySizes.OBJECT_HEADER + ArraySizes.of(ids) + ArraySizes.of(scores);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.storage.primitive;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ArraySizes {
+
+    public static final long OBJECT_HEADER = 16;
+    public static final long REFERENCE = 4;
+
+    public static long of(long[] array) {
+        return OBJECT_HEADER + 8L * array.length;
+    }
+
+    public static long of(double[] array) {
+        return OBJECT_HEADER + 8L * array.length;
+    }
+
+    public static long of(Object[] array) {
+        return OBJECT_HEADER + REFERENCE * array.length;
+    }
+}
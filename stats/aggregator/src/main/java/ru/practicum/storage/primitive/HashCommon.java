@@ -0,0 +1,56 @@
+package ru.practicum.storage.primitive;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class HashCommon {
+
+    static final float LOAD_FACTOR = 0.75f;
+    static final int DEFAULT_CAPACITY = 16;
+    // a table of two slots holds one entry, which is all most per-user maps ever need
+    private static final int MIN_TABLE_SIZE = 2;
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final long STRIPE_MULTIPLIER = 0xBF58476D1CE4E5B9L;
+
+    static int mix(long key) {
+        long h = key * GOLDEN_RATIO;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    static int mix(long first, long second) {
+        return mix(first * 31 + mix(second));
+    }
+
+    /**
+     * Picks one of {@code 1 << bits} stripes. Uses an independent multiplier and the high bits
+     * so that keys sharing a stripe still spread over the whole table inside it.
+     */
+    public static int stripe(long key, int bits) {
+        return bits == 0 ? 0 : (int) ((key * STRIPE_MULTIPLIER) >>> (64 - bits));
+    }
+
+    public static int stripe(long first, long second, int bits) {
+        return stripe(first * GOLDEN_RATIO + second, bits);
+    }
+
+    /**
+     * The smallest table holding {@code expected} entries without growing.
+     */
+    static int tableSize(int expected) {
+        int size = Integer.highestOneBit(Math.max(MIN_TABLE_SIZE, (int) Math.ceil(expected / LOAD_FACTOR)) - 1) << 1;
+        if (size <= 0) {
+            throw new IllegalStateException("Hash table is too large: " + expected);
+        }
+        return size;
+    }
+
+    /**
+     * Entries a table holds before it grows; at least one slot always stays free, so probing ends.
+     */
+    static int maxFill(int capacity) {
+        return Math.min(capacity - 1, (int) Math.ceil(capacity * LOAD_FACTOR));
+    }
+}
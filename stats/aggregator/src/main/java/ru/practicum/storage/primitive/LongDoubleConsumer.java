@@ -0,0 +1,6 @@
+package ru.practicum.storage.primitive;
+
+@FunctionalInterface
+public interface LongDoubleConsumer {
+    void accept(long key, double value);
+}
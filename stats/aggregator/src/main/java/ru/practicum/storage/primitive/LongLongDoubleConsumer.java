@@ -0,0 +1,6 @@
+package ru.practicum.storage.primitive;
+
+@FunctionalInterface
+public interface LongLongDoubleConsumer {
+    void accept(long first, long second, double value);
+}
@@ -0,0 +1,6 @@
+package ru.practicum.storage.primitive;
+
+@FunctionalInterface
+public interface LongLongLongConsumer {
+    void accept(long first, long second, long value);
+}
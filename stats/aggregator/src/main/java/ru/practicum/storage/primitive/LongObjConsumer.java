@@ -0,0 +1,6 @@
+package ru.practicum.storage.primitive;
+
+@FunctionalInterface
+public interface LongObjConsumer<V> {
+    void accept(long key, V value);
+}
@@ -0,0 +1,198 @@
+package ru.practicum.storage.primitive;
+
+/**
+ * Open addressing (long, long) -> double map. Both halves of a key are packed side by side
+ * into one {@code long[]}, so a lookup touches a single cache line and allocates nothing.
+ * The pair (0, 0) is used as the free slot marker and is kept aside in {@code zeroValue}.
+ */
+public class LongPairDoubleHashMap {
+
+    private long[] keys;
+    private double[] values;
+    private int mask;
+    private int maxFill;
+    private int size;
+
+    private boolean hasZeroKey;
+    private double zeroValue;
+
+    public LongPairDoubleHashMap() {
+        this(HashCommon.DEFAULT_CAPACITY);
+    }
+
+    public LongPairDoubleHashMap(int expected) {
+        allocate(HashCommon.tableSize(expected));
+    }
+
+    public double get(long first, long second, double defaultValue) {
+        if (isZero(first, second)) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int pos = find(first, second);
+        return pos < 0 ? defaultValue : values[pos];
+    }
+
+    public boolean containsKey(long first, long second) {
+        if (isZero(first, second)) {
+            return hasZeroKey;
+        }
+        return find(first, second) >= 0;
+    }
+
+    public void put(long first, long second, double value) {
+        if (isZero(first, second)) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int pos = HashCommon.mix(first, second) & mask;
+        while (!isFree(pos)) {
+            if (keys[pos << 1] == first && keys[(pos << 1) + 1] == second) {
+                values[pos] = value;
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+        insertAt(pos, first, second, value);
+    }
+
+    public double addTo(long first, long second, double delta) {
+        if (isZero(first, second)) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue += delta;
+            return zeroValue;
+        }
+        int pos = HashCommon.mix(first, second) & mask;
+        while (!isFree(pos)) {
+            if (keys[pos << 1] == first && keys[(pos << 1) + 1] == second) {
+                values[pos] += delta;
+                return values[pos];
+            }
+            pos = (pos + 1) & mask;
+        }
+        insertAt(pos, first, second, delta);
+        return delta;
+    }
+
+    public boolean remove(long first, long second) {
+        if (isZero(first, second)) {
+            if (!hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = false;
+            zeroValue = 0;
+            size--;
+            return true;
+        }
+        int pos = find(first, second);
+        if (pos < 0) {
+            return false;
+        }
+        shiftKeys(pos);
+        size--;
+        return true;
+    }
+
+    public void forEach(LongLongDoubleConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0, 0, zeroValue);
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!isFree(i)) {
+                action.accept(keys[i << 1], keys[(i << 1) + 1], values[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long sizeInBytes() {
+        return ArraySizes.of(keys) + ArraySizes.of(values) + ArraySizes.OBJECT_HEADER;
+    }
+
+    private static boolean isZero(long first, long second) {
+        return first == 0 && second == 0;
+    }
+
+    private boolean isFree(int pos) {
+        return keys[pos << 1] == 0 && keys[(pos << 1) + 1] == 0;
+    }
+
+    private int find(long first, long second) {
+        int pos = HashCommon.mix(first, second) & mask;
+        while (!isFree(pos)) {
+            if (keys[pos << 1] == first && keys[(pos << 1) + 1] == second) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insertAt(int pos, long first, long second, double value) {
+        keys[pos << 1] = first;
+        keys[(pos << 1) + 1] = second;
+        values[pos] = value;
+        if (++size > maxFill) {
+            rehash(values.length << 1);
+        }
+    }
+
+    private void shiftKeys(int pos) {
+        int last;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            while (true) {
+                if (isFree(pos)) {
+                    keys[last << 1] = 0;
+                    keys[(last << 1) + 1] = 0;
+                    values[last] = 0;
+                    return;
+                }
+                int slot = HashCommon.mix(keys[pos << 1], keys[(pos << 1) + 1]) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last << 1] = keys[pos << 1];
+            keys[(last << 1) + 1] = keys[(pos << 1) + 1];
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            long first = oldKeys[i << 1];
+            long second = oldKeys[(i << 1) + 1];
+            if (!isZero(first, second)) {
+                int pos = HashCommon.mix(first, second) & mask;
+                while (!isFree(pos)) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos << 1] = first;
+                keys[(pos << 1) + 1] = second;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity << 1];
+        values = new double[capacity];
+        mask = capacity - 1;
+        maxFill = HashCommon.maxFill(capacity);
+    }
+}
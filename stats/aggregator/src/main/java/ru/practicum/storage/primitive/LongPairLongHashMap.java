@@ -0,0 +1,165 @@
+package ru.practicum.storage.primitive;
+
+/**
+ * Open addressing (long, long) -> long map, same layout as {@link LongPairDoubleHashMap}.
+ * The pair (0, 0) is used as the free slot marker and is kept aside in {@code zeroValue}.
+ */
+public class LongPairLongHashMap {
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int maxFill;
+    private int size;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongPairLongHashMap() {
+        this(HashCommon.DEFAULT_CAPACITY);
+    }
+
+    public LongPairLongHashMap(int expected) {
+        allocate(HashCommon.tableSize(expected));
+    }
+
+    public long get(long first, long second, long defaultValue) {
+        if (isZero(first, second)) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int pos = find(first, second);
+        return pos < 0 ? defaultValue : values[pos];
+    }
+
+    public boolean containsKey(long first, long second) {
+        if (isZero(first, second)) {
+            return hasZeroKey;
+        }
+        return find(first, second) >= 0;
+    }
+
+    public void put(long first, long second, long value) {
+        if (isZero(first, second)) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int pos = HashCommon.mix(first, second) & mask;
+        while (!isFree(pos)) {
+            if (keys[pos << 1] == first && keys[(pos << 1) + 1] == second) {
+                values[pos] = value;
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+        insertAt(pos, first, second, value);
+    }
+
+    public boolean remove(long first, long second) {
+        if (isZero(first, second)) {
+            if (!hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = false;
+            zeroValue = 0;
+            size--;
+            return true;
+        }
+        int pos = find(first, second);
+        if (pos < 0) {
+            return false;
+        }
+        shiftKeys(pos);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long sizeInBytes() {
+        return ArraySizes.of(keys) + ArraySizes.of(values) + ArraySizes.OBJECT_HEADER;
+    }
+
+    private static boolean isZero(long first, long second) {
+        return first == 0 && second == 0;
+    }
+
+    private boolean isFree(int pos) {
+        return keys[pos << 1] == 0 && keys[(pos << 1) + 1] == 0;
+    }
+
+    private int find(long first, long second) {
+        int pos = HashCommon.mix(first, second) & mask;
+        while (!isFree(pos)) {
+            if (keys[pos << 1] == first && keys[(pos << 1) + 1] == second) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insertAt(int pos, long first, long second, long value) {
+        keys[pos << 1] = first;
+        keys[(pos << 1) + 1] = second;
+        values[pos] = value;
+        if (++size > maxFill) {
+            rehash(values.length << 1);
+        }
+    }
+
+    private void shiftKeys(int pos) {
+        int last;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            while (true) {
+                if (isFree(pos)) {
+                    keys[last << 1] = 0;
+                    keys[(last << 1) + 1] = 0;
+                    values[last] = 0;
+                    return;
+                }
+                int slot = HashCommon.mix(keys[pos << 1], keys[(pos << 1) + 1]) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last << 1] = keys[pos << 1];
+            keys[(last << 1) + 1] = keys[(pos << 1) + 1];
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            long first = oldKeys[i << 1];
+            long second = oldKeys[(i << 1) + 1];
+            if (!isZero(first, second)) {
+                int pos = HashCommon.mix(first, second) & mask;
+                while (!isFree(pos)) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos << 1] = first;
+                keys[(pos << 1) + 1] = second;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity << 1];
+        values = new long[capacity];
+        mask = capacity - 1;
+        maxFill = HashCommon.maxFill(capacity);
+    }
+}
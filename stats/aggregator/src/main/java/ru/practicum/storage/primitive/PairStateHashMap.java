@@ -0,0 +1,210 @@
+package ru.practicum.storage.primitive;
+
+/**
+ * Open addressing (long, long) -> (sum, score) map: the min-weight sum and the last emitted score of an event
+ * pair share one slot, so every pair key is stored once. Same layout as {@link LongPairDoubleHashMap} with a
+ * second value array; NaN marks an absent value and a slot is freed once both are absent.
+ * The pair (0, 0) is the free slot marker; pairs are of two different events, so it never occurs.
+ */
+public class PairStateHashMap {
+
+    private long[] keys;
+    private double[] sums;
+    private double[] scores;
+    private int mask;
+    private int maxFill;
+    private int size;
+    private int sumCount;
+    private int scoreCount;
+
+    public PairStateHashMap() {
+        this(HashCommon.DEFAULT_CAPACITY);
+    }
+
+    public PairStateHashMap(int expected) {
+        allocate(HashCommon.tableSize(expected));
+    }
+
+    public double getSum(long first, long second, double defaultValue) {
+        int pos = find(first, second);
+        return pos < 0 || Double.isNaN(sums[pos]) ? defaultValue : sums[pos];
+    }
+
+    public double addToSum(long first, long second, double delta) {
+        int pos = find(first, second);
+        if (pos < 0) {
+            insert(first, second, delta, Double.NaN);
+            sumCount++;
+            return delta;
+        }
+        if (Double.isNaN(sums[pos])) {
+            sums[pos] = delta;
+            sumCount++;
+        } else {
+            sums[pos] += delta;
+        }
+        return sums[pos];
+    }
+
+    public boolean removeSum(long first, long second) {
+        int pos = find(first, second);
+        if (pos < 0 || Double.isNaN(sums[pos])) {
+            return false;
+        }
+        sums[pos] = Double.NaN;
+        sumCount--;
+        freeIfEmpty(pos);
+        return true;
+    }
+
+    public double getScore(long first, long second, double defaultValue) {
+        int pos = find(first, second);
+        return pos < 0 || Double.isNaN(scores[pos]) ? defaultValue : scores[pos];
+    }
+
+    public void putScore(long first, long second, double score) {
+        int pos = find(first, second);
+        if (pos < 0) {
+            insert(first, second, Double.NaN, score);
+            scoreCount++;
+            return;
+        }
+        if (Double.isNaN(scores[pos])) {
+            scoreCount++;
+        }
+        scores[pos] = score;
+    }
+
+    public boolean removeScore(long first, long second) {
+        int pos = find(first, second);
+        if (pos < 0 || Double.isNaN(scores[pos])) {
+            return false;
+        }
+        scores[pos] = Double.NaN;
+        scoreCount--;
+        freeIfEmpty(pos);
+        return true;
+    }
+
+    public void forEachSum(LongLongDoubleConsumer action) {
+        for (int i = 0; i < sums.length; i++) {
+            if (!isFree(i) && !Double.isNaN(sums[i])) {
+                action.accept(keys[i << 1], keys[(i << 1) + 1], sums[i]);
+            }
+        }
+    }
+
+    public void forEachScore(LongLongDoubleConsumer action) {
+        for (int i = 0; i < scores.length; i++) {
+            if (!isFree(i) && !Double.isNaN(scores[i])) {
+                action.accept(keys[i << 1], keys[(i << 1) + 1], scores[i]);
+            }
+        }
+    }
+
+    public int sums() {
+        return sumCount;
+    }
+
+    public int scores() {
+        return scoreCount;
+    }
+
+    public long sizeInBytes() {
+        return ArraySizes.of(keys) + ArraySizes.of(sums) + ArraySizes.of(scores) + ArraySizes.OBJECT_HEADER;
+    }
+
+    private boolean isFree(int pos) {
+        return keys[pos << 1] == 0 && keys[(pos << 1) + 1] == 0;
+    }
+
+    private int find(long first, long second) {
+        int pos = HashCommon.mix(first, second) & mask;
+        while (!isFree(pos)) {
+            if (keys[pos << 1] == first && keys[(pos << 1) + 1] == second) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long first, long second, double sum, double score) {
+        if (first == 0 && second == 0) {
+            throw new IllegalArgumentException("(0, 0) is not an event pair");
+        }
+        int pos = HashCommon.mix(first, second) & mask;
+        while (!isFree(pos)) {
+            pos = (pos + 1) & mask;
+        }
+        keys[pos << 1] = first;
+        keys[(pos << 1) + 1] = second;
+        sums[pos] = sum;
+        scores[pos] = score;
+        if (++size > maxFill) {
+            rehash(sums.length << 1);
+        }
+    }
+
+    private void freeIfEmpty(int pos) {
+        if (Double.isNaN(sums[pos]) && Double.isNaN(scores[pos])) {
+            shiftKeys(pos);
+            size--;
+        }
+    }
+
+    private void shiftKeys(int pos) {
+        int last;
+        while (true) {
+            last = pos;
+            pos = (pos + 1) & mask;
+            while (true) {
+                if (isFree(pos)) {
+                    keys[last << 1] = 0;
+                    keys[(last << 1) + 1] = 0;
+                    sums[last] = 0;
+                    scores[last] = 0;
+                    return;
+                }
+                int slot = HashCommon.mix(keys[pos << 1], keys[(pos << 1) + 1]) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last << 1] = keys[pos << 1];
+            keys[(last << 1) + 1] = keys[(pos << 1) + 1];
+            sums[last] = sums[pos];
+            scores[last] = scores[pos];
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        double[] oldSums = sums;
+        double[] oldScores = scores;
+        allocate(capacity);
+        for (int i = 0; i < oldSums.length; i++) {
+            long first = oldKeys[i << 1];
+            long second = oldKeys[(i << 1) + 1];
+            if (first != 0 || second != 0) {
+                int pos = HashCommon.mix(first, second) & mask;
+                while (!isFree(pos)) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos << 1] = first;
+                keys[(pos << 1) + 1] = second;
+                sums[pos] = oldSums[i];
+                scores[pos] = oldScores[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity << 1];
+        sums = new double[capacity];
+        scores = new double[capacity];
+        mask = capacity - 1;
+        maxFill = HashCommon.maxFill(capacity);
+    }
+}
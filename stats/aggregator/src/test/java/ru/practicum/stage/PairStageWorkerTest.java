@@ -0,0 +1,97 @@
+package ru.practicum.stage;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Serializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.ewm.stats.avro.EventPairDeltaAvro;
+import ru.practicum.ewm.stats.avro.EventPairSumAvro;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.EventWeightSumAvro;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PairStageWorkerTest {
+
+    private static final int PAIR_PARTITION = 0;
+
+    private final KafkaSettingsConfig settings = new KafkaSettingsConfig();
+    private MockProducer<String, SpecificRecordBase> producer;
+    private EventWeightSumView eventWeightSums;
+    private PairStageWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        settings.setPairDelta("pair-delta");
+        settings.setPairChangelog("pair-changelog");
+        settings.setEventWeightSum("event-weight-sum");
+        settings.setSimilarity("similarity");
+
+        Serializer<Object> noop = (topic, data) -> new byte[0];
+        producer = new MockProducer<>(true, noop::serialize, noop::serialize);
+
+        MockConsumer<String, EventPairSumAvro> restoreConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        TopicPartition changelog = new TopicPartition(settings.getPairChangelog(), PAIR_PARTITION);
+        restoreConsumer.updateBeginningOffsets(Map.of(changelog, 0L));
+        restoreConsumer.updateEndOffsets(Map.of(changelog, 0L));
+
+        // never started: the view only sees what a test applies to it
+        eventWeightSums = new EventWeightSumView(settings.getEventWeightSum(),
+                new MockConsumer<>(OffsetResetStrategy.EARLIEST));
+        worker = new PairStageWorker(settings, new MockConsumer<>(OffsetResetStrategy.EARLIEST), restoreConsumer,
+                producer, eventWeightSums);
+        worker.restorePartition(PAIR_PARTITION);
+    }
+
+    @Test
+    void scoresPairWhoseWeightSumsShowUpAfterTheDelta() {
+        // a user of action partition 3 weighs event 1 at 1.0 and event 2 at 0.8
+        process(new EventPairDeltaAvro(1L, 2L, 0.8, Instant.EPOCH, 3, 1.0, 0.8));
+
+        assertEquals(0.8 / Math.sqrt(1.0 * 0.8), lastSimilarity().getScore(), 1e-12);
+
+        eventWeightSums.apply(new EventWeightSumAvro(1L, 3, 1.0));
+        eventWeightSums.apply(new EventWeightSumAvro(2L, 3, 0.8));
+        eventWeightSums.apply(new EventWeightSumAvro(1L, 5, 0.4));
+        eventWeightSums.apply(new EventWeightSumAvro(2L, 5, 0.4));
+        // a user of action partition 5 weighs both events at 0.4
+        process(new EventPairDeltaAvro(1L, 2L, 0.4, Instant.EPOCH, 5, 0.4, 0.4));
+
+        assertEquals(1.2 / Math.sqrt(1.4 * 1.2), lastSimilarity().getScore(), 1e-12);
+    }
+
+    @Test
+    void prefersTheDeltaShareOverALaggingView() {
+        eventWeightSums.apply(new EventWeightSumAvro(1L, 3, 0.4));
+        eventWeightSums.apply(new EventWeightSumAvro(2L, 3, 0.4));
+        eventWeightSums.apply(new EventWeightSumAvro(2L, 4, 1.0));
+
+        // event 1 grew to 1.0 on partition 3, the view still holds 0.4
+        process(new EventPairDeltaAvro(1L, 2L, 0.4, Instant.EPOCH, 3, 1.0, 0.4));
+
+        assertEquals(0.4 / Math.sqrt(1.0 * 1.4), lastSimilarity().getScore(), 1e-12);
+    }
+
+    private void process(EventPairDeltaAvro delta) {
+        worker.process(PAIR_PARTITION, new ConsumerRecord<>(settings.getPairDelta(), PAIR_PARTITION, 0L,
+                delta.getEventA() + ":" + delta.getEventB(), delta));
+    }
+
+    private EventSimilarityAvro lastSimilarity() {
+        List<ProducerRecord<String, SpecificRecordBase>> similarities = producer.history().stream()
+                .filter(record -> record.topic().equals(settings.getSimilarity()))
+                .toList();
+        return (EventSimilarityAvro) similarities.get(similarities.size() - 1).value();
+    }
+}
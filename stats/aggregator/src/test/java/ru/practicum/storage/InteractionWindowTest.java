@@ -0,0 +1,63 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InteractionWindowTest {
+
+    @Test
+    void pollsExpiredInteractionsOfEveryStripeInBatches() {
+        InteractionWindow window = new InteractionWindow(100);
+        for (long userId = 1; userId <= 1000; userId++) {
+            window.record(userId, 7L, userId);
+        }
+        window.record(1L, 8L, 1200);
+
+        long[] users = new long[64];
+        long[] events = new long[64];
+        long[] timestamps = new long[64];
+        Set<Long> expired = new HashSet<>();
+        int count;
+        do {
+            count = window.pollExpired(users, events, timestamps);
+            for (int i = 0; i < count; i++) {
+                assertEquals(7L, events[i]);
+                assertEquals(users[i], timestamps[i]);
+                assertTrue(window.forget(users[i], events[i], timestamps[i]));
+                expired.add(users[i]);
+            }
+        } while (count == users.length);
+
+        assertEquals(1000, expired.size());
+        assertEquals(1, window.interactions());
+        assertEquals(1200, window.watermark());
+    }
+
+    @Test
+    void keepsRenewedInteraction() {
+        InteractionWindow window = new InteractionWindow(100);
+        window.record(1L, 7L, 10);
+        window.record(1L, 7L, 150);
+        window.record(2L, 7L, 200);
+
+        long[] users = new long[4];
+        assertEquals(0, window.pollExpired(users, new long[4], new long[4]));
+        assertFalse(window.forget(1L, 7L, 10));
+        assertEquals(2, window.interactions());
+    }
+
+    @Test
+    void ignoresEverythingWhenDisabled() {
+        InteractionWindow window = new InteractionWindow(0);
+        window.record(1L, 7L, 10);
+
+        assertEquals(0, window.interactions());
+        assertFalse(window.forget(1L, 7L, 10));
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SimilarityStateStoreTest {
+
+    private static final int ROUNDS = 100_000;
+    private static final double ZERO_SUM = 1e-9;
+
+    @Test
+    void primitiveStoreKeepsConcurrentAddsWhileExpiring() throws Exception {
+        keepsConcurrentAddsWhileExpiring(new PrimitiveStateStore(4));
+    }
+
+    @Test
+    void hashMapStoreKeepsConcurrentAddsWhileExpiring() throws Exception {
+        keepsConcurrentAddsWhileExpiring(new HashMapStateStore());
+    }
+
+    @Test
+    void removesSumsThatDropBelowTheThreshold() {
+        SimilarityStateStore store = new PrimitiveStateStore();
+        store.addEventWeightSum(7L, 0.4);
+        store.addMinWeightSum(7L, 8L, 0.4);
+
+        assertEquals(0.0, store.addEventWeightSumOrRemove(7L, -0.4, ZERO_SUM), ZERO_SUM);
+        assertEquals(0.0, store.addMinWeightSumOrRemove(7L, 8L, -0.4, ZERO_SUM), ZERO_SUM);
+        assertEquals(0, store.stats().events());
+        assertEquals(0, store.stats().pairs());
+    }
+
+    // one thread adds and expires its own weight while another only adds; none of the latter may get lost
+    private void keepsConcurrentAddsWhileExpiring(SimilarityStateStore store) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?> expiring = executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; i++) {
+                    store.addEventWeightSum(7L, 1.0);
+                    store.addEventWeightSumOrRemove(7L, -1.0, ZERO_SUM);
+                    store.addMinWeightSum(7L, 8L, 1.0);
+                    store.addMinWeightSumOrRemove(7L, 8L, -1.0, ZERO_SUM);
+                }
+                return null;
+            });
+            Future<?> adding = executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; i++) {
+                    store.addEventWeightSum(7L, 0.5);
+                    store.addMinWeightSum(7L, 8L, 0.5);
+                }
+                return null;
+            });
+            start.countDown();
+            expiring.get();
+            adding.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(ROUNDS * 0.5, store.getEventWeightSum(7L));
+        assertEquals(ROUNDS * 0.5, store.getMinWeightSum(7L, 8L));
+    }
+}
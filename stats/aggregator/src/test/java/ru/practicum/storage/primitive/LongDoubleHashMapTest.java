@@ -0,0 +1,115 @@
+package ru.practicum.storage.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongDoubleHashMapTest {
+
+    // the default table has 32 slots
+    private static final int MASK = 31;
+
+    @Test
+    void keepsCollidingKeysReachableAfterRemovingTheHeadOfTheirRun() {
+        long[] colliding = keysWithHome(MASK, 4);
+        LongDoubleHashMap map = new LongDoubleHashMap();
+        for (int i = 0; i < colliding.length; i++) {
+            map.put(colliding[i], i);
+        }
+
+        // the run wraps from the last slot to the first ones, the entries behind the gap shift back over it
+        assertTrue(map.remove(colliding[0]));
+        assertTrue(map.remove(colliding[2]));
+
+        assertEquals(2, map.size());
+        assertFalse(map.containsKey(colliding[0]));
+        assertEquals(1.0, map.get(colliding[1], -1));
+        assertEquals(3.0, map.get(colliding[3], -1));
+        assertEquals(-1.0, map.get(colliding[2], -1));
+    }
+
+    @Test
+    void doesNotShiftAnEntryBeforeItsHomeSlot() {
+        long[] first = keysWithHome(5, 2);
+        long second = keysWithHome(6, 1)[0];
+        LongDoubleHashMap map = new LongDoubleHashMap();
+        map.put(first[0], 1);
+        map.put(first[1], 2);
+        // home slot 6, probed on to 7 behind the run of slot 5
+        map.put(second, 3);
+
+        assertTrue(map.remove(first[0]));
+
+        assertEquals(2.0, map.get(first[1], -1));
+        assertEquals(3.0, map.get(second, -1));
+        assertTrue(map.remove(second));
+        assertEquals(2.0, map.get(first[1], -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void keepsZeroKeyAside() {
+        LongDoubleHashMap map = new LongDoubleHashMap();
+        map.put(0, 1.5);
+        map.addTo(0, 1.0);
+
+        assertEquals(2.5, map.get(0, -1));
+        assertEquals(1, map.size());
+        assertTrue(map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void sizesSingleEntryTableToTwoSlots() {
+        LongDoubleHashMap map = new LongDoubleHashMap(1);
+        map.put(42, 1.0);
+
+        assertEquals(2 * ArraySizes.of(new long[2]) + ArraySizes.OBJECT_HEADER, map.sizeInBytes());
+        map.put(43, 2.0);
+        assertEquals(1.0, map.get(42, -1));
+        assertEquals(2.0, map.get(43, -1));
+    }
+
+    @Test
+    void matchesHashMapThroughGrowthAndRemovals() {
+        SplittableRandom random = new SplittableRandom(7);
+        LongDoubleHashMap map = new LongDoubleHashMap(1);
+        Map<Long, Double> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextLong(-5_000, 5_000);
+            int op = random.nextInt(i < 100_000 ? 4 : 2);
+            if (op == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else if (op == 1) {
+                assertEquals(expected.getOrDefault(key, Double.NaN), map.get(key, Double.NaN));
+            } else if (op == 2) {
+                map.put(key, i);
+                expected.put(key, (double) i);
+            } else {
+                assertEquals(expected.merge(key, 1.0, Double::sum), map.addTo(key, 1.0));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        Map<Long, Double> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    static long[] keysWithHome(int slot, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1; found < count; key++) {
+            if ((HashCommon.mix(key) & MASK) == slot) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.practicum.storage.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongPairDoubleHashMapTest {
+
+    // the default table has 32 slots
+    private static final int MASK = 31;
+
+    @Test
+    void keepsCollidingPairsReachableAfterRemovingTheHeadOfTheirRun() {
+        long[] seconds = secondsWithHome(1, MASK, 4);
+        LongPairDoubleHashMap map = new LongPairDoubleHashMap();
+        for (int i = 0; i < seconds.length; i++) {
+            map.put(1, seconds[i], i);
+        }
+
+        assertTrue(map.remove(1, seconds[0]));
+        assertTrue(map.remove(1, seconds[2]));
+
+        assertEquals(2, map.size());
+        assertFalse(map.containsKey(1, seconds[0]));
+        assertEquals(1.0, map.get(1, seconds[1], -1));
+        assertEquals(3.0, map.get(1, seconds[3], -1));
+    }
+
+    @Test
+    void tellsPairsSharingAHalfApart() {
+        LongPairDoubleHashMap map = new LongPairDoubleHashMap();
+        map.put(1, 2, 1.0);
+        map.put(2, 1, 2.0);
+        map.put(0, 0, 3.0);
+
+        assertEquals(1.0, map.get(1, 2, -1));
+        assertEquals(2.0, map.get(2, 1, -1));
+        assertEquals(3.0, map.get(0, 0, -1));
+        assertTrue(map.remove(0, 0));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void matchesHashMapThroughGrowthAndRemovals() {
+        SplittableRandom random = new SplittableRandom(11);
+        LongPairDoubleHashMap map = new LongPairDoubleHashMap(1);
+        Map<List<Long>, Double> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long first = random.nextLong(0, 100);
+            long second = random.nextLong(0, 100);
+            List<Long> key = List.of(first, second);
+            int op = random.nextInt(i < 100_000 ? 4 : 2);
+            if (op == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(first, second));
+            } else if (op == 1) {
+                assertEquals(expected.getOrDefault(key, Double.NaN), map.get(first, second, Double.NaN));
+            } else if (op == 2) {
+                map.put(first, second, i);
+                expected.put(key, (double) i);
+            } else {
+                assertEquals(expected.merge(key, 1.0, Double::sum), map.addTo(first, second, 1.0));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        Map<List<Long>, Double> actual = new HashMap<>();
+        map.forEach((first, second, value) -> actual.put(List.of(first, second), value));
+        assertEquals(expected, actual);
+    }
+
+    static long[] secondsWithHome(long first, int slot, int count) {
+        long[] seconds = new long[count];
+        int found = 0;
+        for (long second = 1; found < count; second++) {
+            if ((HashCommon.mix(first, second) & MASK) == slot) {
+                seconds[found++] = second;
+            }
+        }
+        return seconds;
+    }
+}
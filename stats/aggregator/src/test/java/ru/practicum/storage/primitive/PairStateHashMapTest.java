@@ -0,0 +1,93 @@
+package ru.practicum.storage.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PairStateHashMapTest {
+
+    @Test
+    void keepsThePairWhileEitherValueIsPresent() {
+        PairStateHashMap map = new PairStateHashMap();
+        map.addToSum(1, 2, 0.8);
+        map.putScore(1, 2, 0.5);
+
+        assertTrue(map.removeSum(1, 2));
+        assertEquals(0.5, map.getScore(1, 2, Double.NaN));
+        assertEquals(0.0, map.getSum(1, 2, 0.0));
+        assertEquals(0, map.sums());
+        assertEquals(1, map.scores());
+
+        assertTrue(map.removeScore(1, 2));
+        assertFalse(map.removeScore(1, 2));
+        assertEquals(0, map.scores());
+    }
+
+    @Test
+    void shiftsCollidingPairsBackWhenASlotIsFreed() {
+        long[] seconds = LongPairDoubleHashMapTest.secondsWithHome(3, 31, 4);
+        PairStateHashMap map = new PairStateHashMap();
+        for (int i = 0; i < seconds.length; i++) {
+            map.addToSum(3, seconds[i], i);
+            map.putScore(3, seconds[i], -i);
+        }
+
+        map.removeSum(3, seconds[0]);
+        map.removeScore(3, seconds[0]);
+
+        for (int i = 1; i < seconds.length; i++) {
+            assertEquals(i, map.getSum(3, seconds[i], Double.NaN));
+            assertEquals(-i, map.getScore(3, seconds[i], Double.NaN));
+        }
+    }
+
+    @Test
+    void rejectsTheFreeSlotMarker() {
+        PairStateHashMap map = new PairStateHashMap();
+
+        assertThrows(IllegalArgumentException.class, () -> map.addToSum(0, 0, 1.0));
+        assertEquals(0.0, map.getSum(0, 0, 0.0));
+    }
+
+    @Test
+    void matchesTwoHashMapsThroughGrowthAndRemovals() {
+        SplittableRandom random = new SplittableRandom(13);
+        PairStateHashMap map = new PairStateHashMap(1);
+        Map<List<Long>, Double> sums = new HashMap<>();
+        Map<List<Long>, Double> scores = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long first = random.nextLong(0, 100);
+            long second = random.nextLong(first + 1, 101);
+            List<Long> key = List.of(first, second);
+            switch (random.nextInt(i < 100_000 ? 6 : 3)) {
+                case 0 -> assertEquals(sums.remove(key) != null, map.removeSum(first, second));
+                case 1 -> assertEquals(scores.remove(key) != null, map.removeScore(first, second));
+                case 2 -> {
+                    assertEquals(sums.getOrDefault(key, 0.0), map.getSum(first, second, 0.0));
+                    assertEquals(scores.getOrDefault(key, Double.NaN), map.getScore(first, second, Double.NaN));
+                }
+                case 3, 4 -> assertEquals(sums.merge(key, 0.4, Double::sum), map.addToSum(first, second, 0.4));
+                default -> {
+                    map.putScore(first, second, i);
+                    scores.put(key, (double) i);
+                }
+            }
+            assertEquals(sums.size(), map.sums());
+            assertEquals(scores.size(), map.scores());
+        }
+        Map<List<Long>, Double> actualSums = new HashMap<>();
+        map.forEachSum((first, second, sum) -> actualSums.put(List.of(first, second), sum));
+        Map<List<Long>, Double> actualScores = new HashMap<>();
+        map.forEachScore((first, second, score) -> actualScores.put(List.of(first, second), score));
+        assertEquals(sums, actualSums);
+        assertEquals(scores, actualScores);
+    }
+}
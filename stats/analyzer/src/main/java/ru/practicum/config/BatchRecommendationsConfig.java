@@ -0,0 +1,18 @@
+package ru.practicum.config;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ToString
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties("analyzer.batch-recommendations")
+@RequiredArgsConstructor(access = AccessLevel.PUBLIC)
+public class BatchRecommendationsConfig {
+    // users whose interactions are read in one statement and then scored together
+    int usersPerFetch = 1000;
+    // 0 means one scoring thread per available processor
+    int parallelism = 0;
+}
@@ -0,0 +1,25 @@
+package ru.practicum.config;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ToString
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties("analyzer.recommendation-store")
+@RequiredArgsConstructor(access = AccessLevel.PUBLIC)
+public class RecommendationStoreConfig {
+    boolean enabled = true;
+    // only requests with exactly this max_result are served from the store
+    int topN = 10;
+    int maxUsers = 1_000_000;
+    // a pair whose similarity moves less than this leaves the lists that depend on it alone
+    double scoreChangeThreshold = 0.05;
+    Duration refreshInterval = Duration.ofSeconds(5);
+    // users who have not asked for recommendations this long are dropped and no longer refreshed
+    Duration idleExpiry = Duration.ofHours(24);
+}
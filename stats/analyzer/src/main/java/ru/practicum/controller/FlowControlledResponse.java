@@ -0,0 +1,58 @@
+package ru.practicum.controller;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+
+/**
+ * Drains a lazily computed result into a server stream only while the transport can take more, and picks up
+ * again from the on-ready callback. A cancelled call stops pulling from the iterator, so the rest of the
+ * result is never computed.
+ */
+@Slf4j
+final class FlowControlledResponse<T> implements Runnable {
+
+    private final Iterator<T> results;
+    private final ServerCallStreamObserver<T> observer;
+    private boolean done;
+
+    private FlowControlledResponse(Iterator<T> results, ServerCallStreamObserver<T> observer) {
+        this.results = results;
+        this.observer = observer;
+    }
+
+    static <T> void stream(Iterator<T> results, StreamObserver<T> responseObserver) {
+        ServerCallStreamObserver<T> observer = (ServerCallStreamObserver<T>) responseObserver;
+        FlowControlledResponse<T> response = new FlowControlledResponse<>(results, observer);
+        observer.setOnCancelHandler(() -> log.debug("клиент отменил вызов, выдача прервана"));
+        observer.setOnReadyHandler(response);
+        response.run();
+    }
+
+    @Override
+    public synchronized void run() {
+        if (done) {
+            return;
+        }
+        try {
+            while (observer.isReady() && !observer.isCancelled() && results.hasNext()) {
+                observer.onNext(results.next());
+            }
+            if (observer.isCancelled()) {
+                done = true;
+            } else if (!results.hasNext()) {
+                done = true;
+                observer.onCompleted();
+            }
+        } catch (Exception e) {
+            done = true;
+            observer.onError(Status.INTERNAL
+                    .withDescription(e.getLocalizedMessage())
+                    .withCause(e)
+                    .asRuntimeException());
+        }
+    }
+}
@@ -12,6 +12,9 @@ import ru.practicum.ewm.stats.proto.RecommendationsControllerGrpc;
 import ru.practicum.ewm.stats.proto.RecommendedEventProto;
 import ru.practicum.ewm.stats.proto.SimilarEventsRequestProto;
 import ru.practicum.ewm.stats.proto.UserPredictionsRequestProto;
+import ru.practicum.ewm.stats.proto.UserRecommendationsProto;
+import ru.practicum.ewm.stats.proto.UsersPredictionsRequestProto;
+import ru.practicum.service.BatchRecommendationsService;
 import ru.practicum.service.RecommendationsService;
 
 
@@ -21,14 +24,29 @@ import ru.practicum.service.RecommendationsService;
 public class RecommendationsController extends RecommendationsControllerGrpc.RecommendationsControllerImplBase {
 
     private final RecommendationsService service;
+    private final BatchRecommendationsService batchService;
 
     @Override
     public void getRecommendationsForUser(UserPredictionsRequestProto request,
                                           StreamObserver<RecommendedEventProto> responseObserver) {
         try {
             log.info("получаем запрос на рекомендации для пользователя: {}", request.getUserId());
-            service.getRecommendationsForUser(request, responseObserver);
-            responseObserver.onCompleted();
+            FlowControlledResponse.stream(service.getRecommendationsForUser(request), responseObserver);
+        } catch (Exception e) {
+            responseObserver.onError(new StatusRuntimeException(
+                    Status.INTERNAL
+                            .withDescription(e.getLocalizedMessage())
+                            .withCause(e)
+            ));
+        }
+    }
+
+    @Override
+    public void getRecommendationsForUsers(UsersPredictionsRequestProto request,
+                                           StreamObserver<UserRecommendationsProto> responseObserver) {
+        try {
+            log.info("получаем запрос на рекомендации для {} пользователей", request.getUserIdCount());
+            FlowControlledResponse.stream(batchService.getRecommendationsForUsers(request), responseObserver);
         } catch (Exception e) {
             responseObserver.onError(new StatusRuntimeException(
                     Status.INTERNAL
@@ -43,8 +61,7 @@ public class RecommendationsController extends RecommendationsControllerGrpc.Rec
                                  StreamObserver<RecommendedEventProto> responseObserver) {
         try {
             log.info("получаем похожие события для пользователя и события: {}, {}", request.getUserId(), request.getEventId());
-            service.getSimilarEvents(request, responseObserver);
-            responseObserver.onCompleted();
+            FlowControlledResponse.stream(service.getSimilarEvents(request), responseObserver);
         } catch (Exception e) {
             responseObserver.onError(new StatusRuntimeException(
                     Status.INTERNAL
@@ -59,8 +76,7 @@ public class RecommendationsController extends RecommendationsControllerGrpc.Rec
                                      StreamObserver<RecommendedEventProto> responseObserver) {
         try {
             log.info("получаем id мероприятий: {}", request.getEventIdList());
-            service.getInteractionsCount(request, responseObserver);
-            responseObserver.onCompleted();
+            FlowControlledResponse.stream(service.getInteractionsCount(request), responseObserver);
         } catch (Exception e) {
             responseObserver.onError(new StatusRuntimeException(
                     Status.INTERNAL
@@ -1,45 +0,0 @@
-package ru.practicum.deserialize;
-
-import org.apache.avro.Schema;
-import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.Decoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.specific.SpecificDatumReader;
-import org.apache.avro.specific.SpecificRecordBase;
-import org.apache.kafka.common.errors.SerializationException;
-import org.apache.kafka.common.serialization.Deserializer;
-
-import java.io.IOException;
-
-public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deserializer<T> {
-
-    private final DecoderFactory decoderFactory;
-    private final Schema schema;
-
-    public BaseAvroDeserializer(Schema schema) {
-        this(DecoderFactory.get(), schema);
-    }
-
-    public BaseAvroDeserializer(DecoderFactory decoderFactory, Schema schema) {
-        this.decoderFactory = decoderFactory;
-        this.schema = schema;
-    }
-
-    @Override
-    public T deserialize(String topic, byte[] data) {
-        if (data == null || data.length == 0) {
-            return null;
-        }
-        try {
-            DatumReader<T> datumReader = new SpecificDatumReader<>(schema);
-            Decoder decoder = decoderFactory.binaryDecoder(data, null);
-            return datumReader.read(null, decoder);
-        } catch (IOException e) {
-            throw new SerializationException("Error deserializing Avro message", e);
-        }
-    }
-
-    @Override
-    public void close() {
-    }
-}
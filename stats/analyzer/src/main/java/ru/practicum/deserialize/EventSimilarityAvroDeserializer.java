@@ -1,6 +1,7 @@
 package ru.practicum.deserialize;
 
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.serialization.BaseAvroDeserializer;
 
 public class EventSimilarityAvroDeserializer extends BaseAvroDeserializer<EventSimilarityAvro> {
 
@@ -1,6 +1,7 @@
 package ru.practicum.deserialize;
 
 import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.serialization.BaseAvroDeserializer;
 
 public class UserActionAvroDeserializer extends BaseAvroDeserializer<UserActionAvro> {
 
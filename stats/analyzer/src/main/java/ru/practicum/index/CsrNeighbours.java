@@ -0,0 +1,173 @@
+package ru.practicum.index;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable compressed-sparse-row layout: the neighbours of eventIds[i] are
+ * neighbours[offsets[i]..offsets[i + 1]), sorted by score, highest first.
+ */
+final class CsrNeighbours {
+
+    static final CsrNeighbours EMPTY = new CsrNeighbours(new long[0], new int[1], new long[0], new double[0]);
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final long[] eventIds;
+    private final int[] offsets;
+    private final long[] neighbours;
+    private final double[] scores;
+
+    private CsrNeighbours(long[] eventIds, int[] offsets, long[] neighbours, double[] scores) {
+        this.eventIds = eventIds;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.scores = scores;
+    }
+
+    Neighbours row(long eventId) {
+        int i = Arrays.binarySearch(eventIds, eventId);
+        return i < 0 ? Neighbours.EMPTY : new Neighbours(neighbours, scores, offsets[i], offsets[i + 1]);
+    }
+
+    int events() {
+        return eventIds.length;
+    }
+
+    long entries() {
+        return neighbours.length;
+    }
+
+    long estimatedBytes() {
+        return 16L + 8L * eventIds.length + 16L + 4L * offsets.length + 16L + 16L * neighbours.length + 16L;
+    }
+
+    static CsrNeighbours build(EdgeBuffer edges) {
+        int size = edges.size();
+        long[] ids = new long[size * 2];
+        System.arraycopy(edges.firsts(), 0, ids, 0, size);
+        System.arraycopy(edges.seconds(), 0, ids, size, size);
+        Arrays.sort(ids);
+        long[] eventIds = unique(ids);
+
+        int[] offsets = new int[eventIds.length + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[Arrays.binarySearch(eventIds, edges.firsts()[i]) + 1]++;
+            offsets[Arrays.binarySearch(eventIds, edges.seconds()[i]) + 1]++;
+        }
+        for (int i = 0; i < eventIds.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        long[] neighbours = new long[size * 2];
+        double[] scores = new double[size * 2];
+        int[] cursor = Arrays.copyOf(offsets, eventIds.length);
+        for (int i = 0; i < size; i++) {
+            long first = edges.firsts()[i];
+            long second = edges.seconds()[i];
+            double score = edges.scores()[i];
+            int a = cursor[Arrays.binarySearch(eventIds, first)]++;
+            neighbours[a] = second;
+            scores[a] = score;
+            int b = cursor[Arrays.binarySearch(eventIds, second)]++;
+            neighbours[b] = first;
+            scores[b] = score;
+        }
+        for (int i = 0; i < eventIds.length; i++) {
+            sortDescending(neighbours, scores, offsets[i], offsets[i + 1] - 1);
+        }
+        return new CsrNeighbours(eventIds, offsets, neighbours, scores);
+    }
+
+    /**
+     * Folds rows replaced since the last build into a new layout; an empty row drops the event.
+     */
+    CsrNeighbours merge(Map<Long, Neighbours> replaced) {
+        long[] ids = new long[eventIds.length + replaced.size()];
+        System.arraycopy(eventIds, 0, ids, 0, eventIds.length);
+        int n = eventIds.length;
+        for (Long eventId : replaced.keySet()) {
+            ids[n++] = eventId;
+        }
+        Arrays.sort(ids);
+        long[] candidates = unique(ids);
+
+        Neighbours[] rows = new Neighbours[candidates.length];
+        int events = 0;
+        int entries = 0;
+        for (long eventId : candidates) {
+            Neighbours row = replaced.get(eventId);
+            if (row == null) {
+                row = row(eventId);
+            }
+            if (row.size() > 0) {
+                candidates[events] = eventId;
+                rows[events++] = row;
+                entries += row.size();
+            }
+        }
+
+        long[] newEventIds = Arrays.copyOf(candidates, events);
+        int[] newOffsets = new int[events + 1];
+        long[] newNeighbours = new long[entries];
+        double[] newScores = new double[entries];
+        for (int i = 0; i < events; i++) {
+            Neighbours row = rows[i];
+            System.arraycopy(row.events(), row.from(), newNeighbours, newOffsets[i], row.size());
+            System.arraycopy(row.scores(), row.from(), newScores, newOffsets[i], row.size());
+            newOffsets[i + 1] = newOffsets[i] + row.size();
+        }
+        return new CsrNeighbours(newEventIds, newOffsets, newNeighbours, newScores);
+    }
+
+    private static long[] unique(long[] sorted) {
+        int length = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[length++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, length);
+    }
+
+    static void sortDescending(long[] events, double[] scores, int low, int high) {
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            double pivot = scores[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (scores[i] > pivot) {
+                    i++;
+                }
+                while (scores[j] < pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(events, scores, i++, j--);
+                }
+            }
+            // recurse into the smaller half, loop over the larger one
+            if (j - low < high - i) {
+                sortDescending(events, scores, low, j);
+                low = i;
+            } else {
+                sortDescending(events, scores, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && scores[j] > scores[j - 1]; j--) {
+                swap(events, scores, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(long[] events, double[] scores, int i, int j) {
+        long event = events[i];
+        events[i] = events[j];
+        events[j] = event;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.index;
+
+import java.util.Arrays;
+
+/**
+ * Growable column buffers for the similarity rows read at startup.
+ */
+final class EdgeBuffer {
+
+    private long[] firsts = new long[1024];
+    private long[] seconds = new long[1024];
+    private double[] scores = new double[1024];
+    private int size;
+
+    void add(long first, long second, double score) {
+        if (size == firsts.length) {
+            int capacity = size * 2;
+            firsts = Arrays.copyOf(firsts, capacity);
+            seconds = Arrays.copyOf(seconds, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+        }
+        firsts[size] = first;
+        seconds[size] = second;
+        scores[size++] = score;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] firsts() {
+        return firsts;
+    }
+
+    long[] seconds() {
+        return seconds;
+    }
+
+    double[] scores() {
+        return scores;
+    }
+}
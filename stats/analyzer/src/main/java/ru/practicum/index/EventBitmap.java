@@ -0,0 +1,112 @@
+package ru.practicum.index;
+
+import java.util.Arrays;
+
+/**
+ * Roaring-style set of event ids: ids are split by their upper 48 bits into chunks, and each chunk keeps its
+ * lower 16 bits either as a sorted array or, once it holds more than 4096 ids, as a 65536-bit bitmap.
+ * Not thread-safe on its own.
+ */
+final class EventBitmap {
+
+    private static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private long[] keys = new long[1];
+    private Object[] containers = new Object[1];
+    private int[] cardinalities = new int[1];
+    private int chunks;
+
+    boolean add(long eventId) {
+        long key = eventId >>> 16;
+        char low = (char) eventId;
+        int chunk = Arrays.binarySearch(keys, 0, chunks, key);
+        if (chunk < 0) {
+            chunk = insertChunk(-chunk - 1, key);
+        }
+        boolean added = containers[chunk] instanceof char[] array
+                ? addToArray(chunk, array, low)
+                : addToBitmap((long[]) containers[chunk], low);
+        if (added) {
+            cardinalities[chunk]++;
+        }
+        return added;
+    }
+
+    boolean contains(long eventId) {
+        int chunk = Arrays.binarySearch(keys, 0, chunks, eventId >>> 16);
+        if (chunk < 0) {
+            return false;
+        }
+        char low = (char) eventId;
+        if (containers[chunk] instanceof char[] array) {
+            return Arrays.binarySearch(array, 0, cardinalities[chunk], low) >= 0;
+        }
+        return (((long[]) containers[chunk])[low >>> 6] & (1L << low)) != 0;
+    }
+
+    long cardinality() {
+        long total = 0;
+        for (int i = 0; i < chunks; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    long estimatedBytes() {
+        long bytes = 16 + 24L + 8L * keys.length + 16 + 4L * containers.length + 16 + 4L * cardinalities.length;
+        for (int i = 0; i < chunks; i++) {
+            bytes += containers[i] instanceof char[] array ? 16 + 2L * array.length : 16 + 8L * BITMAP_WORDS;
+        }
+        return bytes;
+    }
+
+    private int insertChunk(int at, long key) {
+        if (chunks == keys.length) {
+            keys = Arrays.copyOf(keys, chunks * 2);
+            containers = Arrays.copyOf(containers, chunks * 2);
+            cardinalities = Arrays.copyOf(cardinalities, chunks * 2);
+        }
+        System.arraycopy(keys, at, keys, at + 1, chunks - at);
+        System.arraycopy(containers, at, containers, at + 1, chunks - at);
+        System.arraycopy(cardinalities, at, cardinalities, at + 1, chunks - at);
+        keys[at] = key;
+        containers[at] = new char[4];
+        cardinalities[at] = 0;
+        chunks++;
+        return at;
+    }
+
+    private boolean addToArray(int chunk, char[] array, char low) {
+        int size = cardinalities[chunk];
+        int at = Arrays.binarySearch(array, 0, size, low);
+        if (at >= 0) {
+            return false;
+        }
+        at = -at - 1;
+        if (size == ARRAY_MAX_SIZE) {
+            long[] bitmap = new long[BITMAP_WORDS];
+            for (int i = 0; i < size; i++) {
+                bitmap[array[i] >>> 6] |= 1L << array[i];
+            }
+            containers[chunk] = bitmap;
+            return addToBitmap(bitmap, low);
+        }
+        if (size == array.length) {
+            array = Arrays.copyOf(array, Math.min(ARRAY_MAX_SIZE, size * 2));
+            containers[chunk] = array;
+        }
+        System.arraycopy(array, at, array, at + 1, size - at);
+        array[at] = low;
+        return true;
+    }
+
+    private static boolean addToBitmap(long[] bitmap, char low) {
+        long mask = 1L << low;
+        if ((bitmap[low >>> 6] & mask) != 0) {
+            return false;
+        }
+        bitmap[low >>> 6] |= mask;
+        return true;
+    }
+}
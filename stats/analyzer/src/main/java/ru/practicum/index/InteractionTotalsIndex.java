@@ -0,0 +1,48 @@
+package ru.practicum.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.repository.UserActionRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sum of user scores per event, the answer to GetInteractionsCount. Loaded from event_interaction_totals at
+ * startup and moved forward by the score increases the user action consumer stores.
+ */
+@Slf4j
+@Component
+public class InteractionTotalsIndex {
+
+    private final UserActionRepository repository;
+    private final Map<Long, Double> totals = new ConcurrentHashMap<>();
+
+    public InteractionTotalsIndex(UserActionRepository repository) {
+        this.repository = repository;
+    }
+
+    @PostConstruct
+    public void load() {
+        long started = System.nanoTime();
+        repository.forEachEventTotal(totals::put);
+        log.info("суммы взаимодействий загружены: событий {} за {} мс", totals.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Called by the user action consumer only, after the deltas are stored.
+     */
+    public void addAll(Map<Long, Double> deltas) {
+        deltas.forEach((eventId, delta) -> totals.merge(eventId, delta, Double::sum));
+    }
+
+    /**
+     * Null when nobody has interacted with the event.
+     */
+    public Double total(long eventId) {
+        return totals.get(eventId);
+    }
+}
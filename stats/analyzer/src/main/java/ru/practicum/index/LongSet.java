@@ -0,0 +1,122 @@
+package ru.practicum.index;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing set of longs with linear probing and backward-shift deletion, so a link costs a table slot
+ * instead of a boxed map node. Starts with two slots and shrinks back as it empties. {@link Long#MIN_VALUE}
+ * marks a free slot and can't be stored. Not thread-safe on its own.
+ */
+final class LongSet {
+
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 2;
+
+    private long[] table = newTable(MIN_CAPACITY);
+    private int size;
+
+    boolean add(long value) {
+        int mask = table.length - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                return false;
+            }
+            if (table[i] == FREE) {
+                table[i] = value;
+                if (++size > maxFill(table.length)) {
+                    rehash(table.length << 1);
+                }
+                return true;
+            }
+        }
+    }
+
+    boolean remove(long value) {
+        int mask = table.length - 1;
+        for (int i = slot(value, mask); table[i] != FREE; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                shiftBack(i, mask);
+                size--;
+                if (table.length > MIN_CAPACITY && size < table.length >> 3) {
+                    rehash(table.length >> 1);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean contains(long value) {
+        int mask = table.length - 1;
+        for (int i = slot(value, mask); table[i] != FREE; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void forEach(LongConsumer action) {
+        for (long value : table) {
+            if (value != FREE) {
+                action.accept(value);
+            }
+        }
+    }
+
+    long estimatedBytes() {
+        return 16 + 8 + 16 + 8L * table.length;
+    }
+
+    // moves later entries of the probe run into the gap unless that would put them before their home slot
+    private void shiftBack(int gap, int mask) {
+        for (int i = (gap + 1) & mask; table[i] != FREE; i = (i + 1) & mask) {
+            int home = slot(table[i], mask);
+            boolean homeInRun = gap <= i ? gap < home && home <= i : gap < home || home <= i;
+            if (!homeInRun) {
+                table[gap] = table[i];
+                gap = i;
+            }
+        }
+        table[gap] = FREE;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        table = newTable(capacity);
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != FREE) {
+                int i = slot(value, mask);
+                while (table[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+    }
+
+    static int slot(long value, int mask) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int maxFill(int capacity) {
+        return Math.max(1, capacity * 3 / 4);
+    }
+
+    private static long[] newTable(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, FREE);
+        return table;
+    }
+}
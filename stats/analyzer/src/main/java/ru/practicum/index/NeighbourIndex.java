@@ -0,0 +1,154 @@
+package ru.practicum.index;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.repository.SimilarityRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event neighbour lists for the recommendation paths, loaded from event_similarities at startup and kept
+ * current from the similarity stream. The bulk sits in an immutable CSR layout; rows touched by the stream
+ * are rewritten copy-on-write into an overlay, once per row and batch, and the overlay is folded into a fresh
+ * layout on a background thread once it grows. Readers never lock: they see either the old or the new row
+ * of an event.
+ */
+@Slf4j
+@Component
+public class NeighbourIndex {
+
+    private static final int MIN_COMPACTION_EVENTS = 10_000;
+
+    private final SimilarityRepository repository;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "neighbour-index-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile State state = new State(CsrNeighbours.EMPTY, Map.of(), new ConcurrentHashMap<>());
+    private volatile long lastRebuildMillis;
+
+    public NeighbourIndex(SimilarityRepository repository) {
+        this.repository = repository;
+    }
+
+    @PostConstruct
+    public void load() {
+        long started = System.nanoTime();
+        EdgeBuffer edges = new EdgeBuffer();
+        repository.forEachSimilarity(edges::add);
+        state = new State(CsrNeighbours.build(edges), Map.of(), new ConcurrentHashMap<>());
+        lastRebuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("индекс соседей загружен: {}", stats());
+    }
+
+    public Neighbours neighbours(long eventId) {
+        State current = state;
+        Neighbours row = current.replaced().get(eventId);
+        if (row == null) {
+            row = current.compacting().get(eventId);
+        }
+        return row != null ? row : current.csr().row(eventId);
+    }
+
+    /**
+     * Called by the similarity consumer only, after the records are stored. Every touched row is rewritten
+     * once however many of its pairs the batch holds. Returns how far the score of each pair moved, in batch
+     * order; a retraction moves it to zero.
+     */
+    public double[] apply(List<EventSimilarityAvro> similarities) {
+        Map<Long, Map<Long, Double>> updates = new HashMap<>();
+        for (EventSimilarityAvro similarity : similarities) {
+            double score = similarity.getRetracted() ? Double.NaN : similarity.getScore();
+            updates.computeIfAbsent(similarity.getEventA(), id -> new HashMap<>()).put(similarity.getEventB(), score);
+            updates.computeIfAbsent(similarity.getEventB(), id -> new HashMap<>()).put(similarity.getEventA(), score);
+        }
+
+        Map<Long, Map<Long, Double>> previous = new HashMap<>();
+        Map<Long, Neighbours> replaced = state.replaced();
+        updates.forEach((eventId, rowUpdates) -> {
+            Map<Long, Double> rowPrevious = new HashMap<>();
+            replaced.put(eventId, neighbours(eventId).with(rowUpdates, rowPrevious));
+            previous.put(eventId, rowPrevious);
+        });
+
+        double[] shifts = new double[similarities.size()];
+        for (int i = 0; i < similarities.size(); i++) {
+            EventSimilarityAvro similarity = similarities.get(i);
+            Map<Long, Double> rowPrevious = previous.get(similarity.getEventA());
+            double before = rowPrevious.getOrDefault(similarity.getEventB(), 0.0);
+            double after = similarity.getRetracted() ? 0 : similarity.getScore();
+            shifts[i] = Math.abs(after - before);
+            // a later record of the same pair in this batch moves it from here
+            rowPrevious.put(similarity.getEventB(), after);
+        }
+
+        State current = state;
+        if (current.compacting().isEmpty()
+                && current.replaced().size() > Math.max(MIN_COMPACTION_EVENTS, current.csr().events() / 2)) {
+            compact(current);
+        }
+        return shifts;
+    }
+
+    // the overlay is frozen for the merge and a new one takes the updates meanwhile
+    private void compact(State current) {
+        State frozen = new State(current.csr(), current.replaced(), new ConcurrentHashMap<>());
+        state = frozen;
+        compactor.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                CsrNeighbours merged = frozen.csr().merge(frozen.compacting());
+                state = new State(merged, Map.of(), state.replaced());
+                lastRebuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                log.debug("индекс соседей перестроен: {}", stats());
+            } catch (Exception e) {
+                // the frozen rows go back into the overlay, newer rows win, and the next batch retries
+                log.error("ошибка перестроения индекса соседей: {}", e.getMessage(), e);
+                Map<Long, Neighbours> replaced = state.replaced();
+                frozen.compacting().forEach(replaced::putIfAbsent);
+                state = new State(frozen.csr(), Map.of(), replaced);
+            }
+        });
+    }
+
+    public NeighbourIndexStats stats() {
+        State current = state;
+        long overlayBytes = 0;
+        for (Neighbours row : current.replaced().values()) {
+            overlayBytes += rowBytes(row);
+        }
+        for (Neighbours row : current.compacting().values()) {
+            overlayBytes += rowBytes(row);
+        }
+        return new NeighbourIndexStats(current.csr().events(), current.csr().entries() / 2,
+                current.replaced().size() + current.compacting().size(),
+                current.csr().estimatedBytes() + overlayBytes, lastRebuildMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+    }
+
+    // map entry, boxed key, record and its two arrays
+    private static long rowBytes(Neighbours row) {
+        return 32 + 16 + 32 + 32 + 16L * row.size();
+    }
+
+    /**
+     * replaced takes the stream's rows; compacting holds the overlay being folded into csr, empty when idle.
+     */
+    private record State(CsrNeighbours csr, Map<Long, Neighbours> compacting, Map<Long, Neighbours> replaced) {
+    }
+}
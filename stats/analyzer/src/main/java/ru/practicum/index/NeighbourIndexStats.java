@@ -0,0 +1,5 @@
+package ru.practicum.index;
+
+public record NeighbourIndexStats(int events, long pairs, int overlayEvents, long estimatedBytes,
+                                  long lastRebuildMillis) {
+}
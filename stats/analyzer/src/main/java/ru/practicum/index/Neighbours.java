@@ -0,0 +1,63 @@
+package ru.practicum.index;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Neighbours of one event ordered by similarity, highest first: a slice of the index arrays.
+ */
+public record Neighbours(long[] events, double[] scores, int from, int to) {
+
+    public static final Neighbours EMPTY = new Neighbours(new long[0], new double[0], 0, 0);
+
+    public int size() {
+        return to - from;
+    }
+
+    public long event(int i) {
+        return events[from + i];
+    }
+
+    public double score(int i) {
+        return scores[from + i];
+    }
+
+    /**
+     * A compact copy with every updated neighbour set to its new score, NaN leaving it out, in one pass over
+     * the row. The scores the updated neighbours had before are put into previous.
+     */
+    Neighbours with(Map<Long, Double> updates, Map<Long, Double> previous) {
+        long[] added = new long[updates.size()];
+        double[] addedScores = new double[updates.size()];
+        int addedLength = 0;
+        for (Map.Entry<Long, Double> update : updates.entrySet()) {
+            if (!update.getValue().isNaN()) {
+                added[addedLength] = update.getKey();
+                addedScores[addedLength++] = update.getValue();
+            }
+        }
+        CsrNeighbours.sortDescending(added, addedScores, 0, addedLength - 1);
+
+        long[] newEvents = new long[size() + addedLength];
+        double[] newScores = new double[size() + addedLength];
+        int length = 0;
+        int next = 0;
+        for (int i = from; i < to; i++) {
+            if (updates.containsKey(events[i])) {
+                previous.put(events[i], scores[i]);
+                continue;
+            }
+            while (next < addedLength && addedScores[next] > scores[i]) {
+                newEvents[length] = added[next];
+                newScores[length++] = addedScores[next++];
+            }
+            newEvents[length] = events[i];
+            newScores[length++] = scores[i];
+        }
+        while (next < addedLength) {
+            newEvents[length] = added[next];
+            newScores[length++] = addedScores[next++];
+        }
+        return new Neighbours(Arrays.copyOf(newEvents, length), Arrays.copyOf(newScores, length), 0, length);
+    }
+}
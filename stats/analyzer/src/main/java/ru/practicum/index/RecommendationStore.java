@@ -0,0 +1,217 @@
+package ru.practicum.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.RecommendationStoreConfig;
+import ru.practicum.ewm.stats.proto.RecommendedEventProto;
+import ru.practicum.mapper.RecommendationsMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+/**
+ * Precomputed top-N recommendations of the users who ask for them. A user enters the store on the first miss
+ * and is kept current by the refresh job: their list is recomputed when their own actions change, or when the
+ * similarity of a pair touching one of the events the list was built from moves past the threshold. Each event
+ * maps back to the users whose lists depend on it, so a shifted pair only visits those users.
+ */
+@Slf4j
+@Component
+public class RecommendationStore {
+
+    private static final long IDLE_SWEEP_MILLIS = 60_000;
+
+    private final RecommendationStoreConfig config;
+    private final Map<Long, Entry> users = new ConcurrentHashMap<>();
+    // a primitive set per event rather than a boxed node per link: every stored user has up to 2 * top-N links
+    private final Map<Long, LongSet> dependents = new ConcurrentHashMap<>();
+    // users whose list is being computed on a miss; true once their actions changed meanwhile
+    private final Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+    private final Set<Long> changedUsers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> shiftedEvents = ConcurrentHashMap.newKeySet();
+    private volatile long lastIdleSweepMillis = System.currentTimeMillis();
+
+    public RecommendationStore(RecommendationStoreConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Lists are ranked for one max_result, which decides the seed events and the candidates too, so no other
+     * size can be cut from them.
+     */
+    public boolean serves(long maxResult) {
+        return config.isEnabled() && maxResult == config.getTopN();
+    }
+
+    /**
+     * Null on a miss.
+     */
+    public List<RecommendedEventProto> get(long userId) {
+        Entry entry = users.get(userId);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastReadMillis = System.currentTimeMillis();
+        List<RecommendedEventProto> recommendations = new ArrayList<>(entry.events.length);
+        for (int i = 0; i < entry.events.length; i++) {
+            recommendations.add(RecommendationsMapper.toRecommendedEventProto(entry.events[i], entry.scores[i]));
+        }
+        return recommendations;
+    }
+
+    /**
+     * Called on a miss before the user's actions are read, so that a change arriving while the list is
+     * computed is not lost once it is put.
+     */
+    public void reserve(long userId) {
+        pending.putIfAbsent(userId, Boolean.FALSE);
+    }
+
+    /**
+     * Stores the list computed on a miss; recentEvents are the user's events the candidates were drawn
+     * from.
+     */
+    public void put(long userId, List<RecommendedEventProto> recommendations, List<Long> recentEvents) {
+        if (users.size() < config.getMaxUsers() || users.containsKey(userId)) {
+            Entry created = new Entry(recommendations, recentEvents, System.currentTimeMillis());
+            users.compute(userId, (id, entry) -> relink(id, entry, created));
+        }
+        // the entry is visible first: a change landing after the marker is gone finds it in drainStale
+        if (Boolean.TRUE.equals(pending.remove(userId))) {
+            changedUsers.add(userId);
+        }
+    }
+
+    /**
+     * Drops the marker of a miss whose computation failed.
+     */
+    public void cancel(long userId) {
+        pending.remove(userId);
+    }
+
+    /**
+     * Replaces the list of a user still in the store, keeping the time it was last read.
+     */
+    public void refresh(long userId, List<RecommendedEventProto> recommendations, List<Long> recentEvents) {
+        users.computeIfPresent(userId, (id, entry) ->
+                relink(id, entry, new Entry(recommendations, recentEvents, entry.lastReadMillis)));
+    }
+
+    /**
+     * Called by the user action consumer after the actions are stored.
+     */
+    public void usersChanged(Collection<Long> userIds) {
+        if (config.isEnabled()) {
+            changedUsers.addAll(userIds);
+            for (Long userId : userIds) {
+                pending.computeIfPresent(userId, (id, changed) -> Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Called by the similarity consumer with the shift the neighbour index reported for the pair.
+     */
+    public void similarityChanged(long first, long second, double shift) {
+        if (config.isEnabled() && shift >= config.getScoreChangeThreshold()) {
+            shiftedEvents.add(first);
+            shiftedEvents.add(second);
+        }
+    }
+
+    /**
+     * Drops idle users now and then and returns the stored users whose lists have gone stale since the
+     * previous call.
+     */
+    public List<Long> drainStale() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleSweepMillis >= IDLE_SWEEP_MILLIS) {
+            lastIdleSweepMillis = now;
+            long idleBefore = now - config.getIdleExpiry().toMillis();
+            for (Long userId : users.keySet()) {
+                users.computeIfPresent(userId, (id, entry) ->
+                        entry.lastReadMillis < idleBefore ? relink(id, entry, null) : entry);
+            }
+        }
+
+        Set<Long> stale = new HashSet<>();
+        for (Long userId : drain(changedUsers)) {
+            if (users.containsKey(userId)) {
+                stale.add(userId);
+            }
+        }
+        for (Long eventId : drain(shiftedEvents)) {
+            LongSet dependentUsers = dependents.get(eventId);
+            if (dependentUsers != null) {
+                synchronized (dependentUsers) {
+                    dependentUsers.forEach(stale::add);
+                }
+            }
+        }
+        return List.copyOf(stale);
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    // runs inside the users map's compute for the user, so one user's links are never rewritten concurrently
+    private Entry relink(long userId, Entry previous, Entry next) {
+        if (previous != null) {
+            for (long eventId : previous.dependsOn) {
+                dependents.computeIfPresent(eventId, (id, dependentUsers) -> {
+                    synchronized (dependentUsers) {
+                        dependentUsers.remove(userId);
+                        return dependentUsers.isEmpty() ? null : dependentUsers;
+                    }
+                });
+            }
+        }
+        if (next != null) {
+            for (long eventId : next.dependsOn) {
+                dependents.compute(eventId, (id, dependentUsers) -> {
+                    LongSet linked = dependentUsers != null ? dependentUsers : new LongSet();
+                    synchronized (linked) {
+                        linked.add(userId);
+                    }
+                    return linked;
+                });
+            }
+        }
+        return next;
+    }
+
+    private static Set<Long> drain(Set<Long> source) {
+        Set<Long> drained = new HashSet<>();
+        for (Iterator<Long> iterator = source.iterator(); iterator.hasNext(); ) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    private static final class Entry {
+        private final long[] events;
+        private final double[] scores;
+        // recommended and recent events: a list can only change through pairs touching one of them
+        private final long[] dependsOn;
+        private volatile long lastReadMillis;
+
+        private Entry(List<RecommendedEventProto> recommendations, List<Long> recentEvents, long lastReadMillis) {
+            this.events = recommendations.stream().mapToLong(RecommendedEventProto::getEventId).toArray();
+            this.scores = recommendations.stream().mapToDouble(RecommendedEventProto::getScore).toArray();
+            this.dependsOn = LongStream.concat(Arrays.stream(events), recentEvents.stream().mapToLong(Long::longValue))
+                    .distinct()
+                    .toArray();
+            this.lastReadMillis = lastReadMillis;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.repository.UserActionRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events each user has interacted with, loaded from user_actions at startup and kept current from the action
+ * stream, so unseen-candidate filtering never has to ship the user's history to the database.
+ */
+@Slf4j
+@Component
+public class SeenEventsIndex {
+
+    private final UserActionRepository repository;
+    private final Map<Long, EventBitmap> users = new ConcurrentHashMap<>();
+
+    private volatile long loadMillis;
+
+    public SeenEventsIndex(UserActionRepository repository) {
+        this.repository = repository;
+    }
+
+    @PostConstruct
+    public void load() {
+        long started = System.nanoTime();
+        repository.forEachInteraction(this::add);
+        loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("индекс просмотренных событий загружен: {}", stats());
+    }
+
+    /**
+     * Called by the user action consumer only, after the action is stored.
+     */
+    public void add(long userId, long eventId) {
+        EventBitmap events = users.computeIfAbsent(userId, k -> new EventBitmap());
+        synchronized (events) {
+            events.add(eventId);
+        }
+    }
+
+    public boolean hasSeen(long userId, long eventId) {
+        EventBitmap events = users.get(userId);
+        if (events == null) {
+            return false;
+        }
+        synchronized (events) {
+            return events.contains(eventId);
+        }
+    }
+
+    public SeenEventsIndexStats stats() {
+        long interactions = 0;
+        // map entry and boxed key on top of the bitmap itself
+        long bytes = 0;
+        for (EventBitmap events : users.values()) {
+            synchronized (events) {
+                interactions += events.cardinality();
+                bytes += 32 + 16 + events.estimatedBytes();
+            }
+        }
+        return new SeenEventsIndexStats(users.size(), interactions, bytes, loadMillis);
+    }
+}
@@ -0,0 +1,4 @@
+package ru.practicum.index;
+
+public record SeenEventsIndexStats(int users, long interactions, long estimatedBytes, long loadMillis) {
+}
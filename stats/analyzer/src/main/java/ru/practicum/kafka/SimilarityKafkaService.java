@@ -11,9 +11,12 @@ import org.apache.kafka.common.errors.WakeupException;
 import org.springframework.stereotype.Service;
 import ru.practicum.config.KafkaSettingsConfig;
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.index.NeighbourIndex;
+import ru.practicum.index.RecommendationStore;
 import ru.practicum.service.SimilarityService;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -23,6 +26,8 @@ import java.util.List;
 public class SimilarityKafkaService implements Runnable {
 
     private final SimilarityService service;
+    private final NeighbourIndex neighbourIndex;
+    private final RecommendationStore recommendationStore;
     private final KafkaConsumer<String, EventSimilarityAvro> consumer;
     private final KafkaSettingsConfig settingsConfig;
 
@@ -36,8 +41,17 @@ public class SimilarityKafkaService implements Runnable {
 
                 ConsumerRecords<String, EventSimilarityAvro> records = consumer.poll(Duration.ofMillis(500));
 
-                for (ConsumerRecord<String, EventSimilarityAvro> datapart : records) {
-                    service.save(datapart.value());
+                if (!records.isEmpty()) {
+                    List<EventSimilarityAvro> batch = new ArrayList<>(records.count());
+                    for (ConsumerRecord<String, EventSimilarityAvro> datapart : records) {
+                        batch.add(datapart.value());
+                    }
+                    service.saveAll(batch);
+                    double[] shifts = neighbourIndex.apply(batch);
+                    for (int i = 0; i < batch.size(); i++) {
+                        recommendationStore.similarityChanged(batch.get(i).getEventA(), batch.get(i).getEventB(),
+                                shifts[i]);
+                    }
                 }
 
                 consumer.commitSync();
@@ -45,7 +59,7 @@ public class SimilarityKafkaService implements Runnable {
         } catch (WakeupException ignored) {
 
         } catch (Exception e) {
-
+            log.error("ошибка обработки: {}", e.getMessage(), e);
         } finally {
             try {
                 consumer.close();
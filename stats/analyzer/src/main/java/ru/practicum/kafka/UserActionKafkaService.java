@@ -11,9 +11,13 @@ import org.apache.kafka.common.errors.WakeupException;
 import org.springframework.stereotype.Service;
 import ru.practicum.config.KafkaSettingsConfig;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.index.InteractionTotalsIndex;
+import ru.practicum.index.RecommendationStore;
+import ru.practicum.index.SeenEventsIndex;
 import ru.practicum.service.UserActionService;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -22,6 +26,9 @@ import java.util.List;
 public class UserActionKafkaService implements Runnable {
 
     private final UserActionService service;
+    private final SeenEventsIndex seenEventsIndex;
+    private final InteractionTotalsIndex interactionTotalsIndex;
+    private final RecommendationStore recommendationStore;
     private final KafkaConsumer<String, UserActionAvro> consumer;
     private final KafkaSettingsConfig settingsConfig;
 
@@ -37,8 +44,14 @@ public class UserActionKafkaService implements Runnable {
 
                 ConsumerRecords<String, UserActionAvro> records = consumer.poll(Duration.ofMillis(500));
 
-                for (ConsumerRecord<String, UserActionAvro> datapart : records) {
-                    service.save(datapart.value());
+                if (!records.isEmpty()) {
+                    List<UserActionAvro> batch = new ArrayList<>(records.count());
+                    for (ConsumerRecord<String, UserActionAvro> datapart : records) {
+                        batch.add(datapart.value());
+                    }
+                    interactionTotalsIndex.addAll(service.saveAll(batch));
+                    batch.forEach(action -> seenEventsIndex.add(action.getUserId(), action.getEventId()));
+                    recommendationStore.usersChanged(batch.stream().map(UserActionAvro::getUserId).toList());
                 }
 
                 consumer.commitSync();
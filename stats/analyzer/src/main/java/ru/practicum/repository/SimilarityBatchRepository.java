@@ -0,0 +1,23 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.EventSimilarity;
+import ru.practicum.model.EventSimilarityId;
+
+import java.util.Collection;
+
+public interface SimilarityBatchRepository {
+
+    void upsertAll(Collection<EventSimilarity> similarities);
+
+    void deleteAllByIds(Collection<EventSimilarityId> ids);
+
+    /**
+     * Streams the whole table without materializing entities.
+     */
+    void forEachSimilarity(SimilarityRowHandler handler);
+
+    @FunctionalInterface
+    interface SimilarityRowHandler {
+        void accept(long first, long second, double score);
+    }
+}
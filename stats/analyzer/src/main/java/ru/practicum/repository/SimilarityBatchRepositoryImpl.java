@@ -0,0 +1,65 @@
+package ru.practicum.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.EventSimilarity;
+import ru.practicum.model.EventSimilarityId;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+
+/**
+ * Plain JDBC for event_similarities: batches for the similarity stream, one round trip per batch instead of a
+ * select, delete and insert per record through the entity manager, and the full scan that seeds the neighbour index.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SimilarityBatchRepositoryImpl implements SimilarityBatchRepository {
+
+    static String UPSERT = """
+            INSERT INTO event_similarities (first_event, second_event, score)
+            VALUES (?, ?, ?)
+            ON CONFLICT (first_event, second_event) DO UPDATE SET score = EXCLUDED.score
+            """;
+    static String DELETE = "DELETE FROM event_similarities WHERE first_event = ? AND second_event = ?";
+    static String SELECT_ALL = "SELECT first_event, second_event, score FROM event_similarities";
+    static int FETCH_SIZE = 10_000;
+
+    JdbcTemplate jdbcTemplate;
+    PlatformTransactionManager transactionManager;
+
+    @Override
+    public void upsertAll(Collection<EventSimilarity> similarities) {
+        jdbcTemplate.batchUpdate(UPSERT, similarities, similarities.size(), (statement, similarity) -> {
+            statement.setLong(1, similarity.getFirst());
+            statement.setLong(2, similarity.getSecond());
+            statement.setDouble(3, similarity.getScore());
+        });
+    }
+
+    @Override
+    public void deleteAllByIds(Collection<EventSimilarityId> ids) {
+        jdbcTemplate.batchUpdate(DELETE, ids, ids.size(), (statement, id) -> {
+            statement.setLong(1, id.getFirst());
+            statement.setLong(2, id.getSecond());
+        });
+    }
+
+    @Override
+    public void forEachSimilarity(SimilarityRowHandler handler) {
+        // PostgreSQL only honours the fetch size inside a transaction, otherwise the whole table is buffered
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ALL);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet ->
+                handler.accept(resultSet.getLong(1), resultSet.getLong(2), resultSet.getDouble(3))));
+    }
+}
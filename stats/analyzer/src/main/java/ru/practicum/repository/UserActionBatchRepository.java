@@ -0,0 +1,45 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.UserAction;
+import ru.practicum.model.UserActionId;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface UserActionBatchRepository {
+
+    /**
+     * Stores each action unless the stored one already has the same or a higher score.
+     */
+    void upsertMaxScore(Collection<UserAction> actions);
+
+    /**
+     * Stored scores of the given pairs; pairs without a row are absent from the result.
+     */
+    Map<UserActionId, Double> findScores(Collection<UserActionId> ids);
+
+    /**
+     * Interactions of all the given users in one statement, grouped by user; users without any are absent.
+     */
+    Map<Long, List<UserAction>> findAllInteractionsByUsers(Collection<Long> userIds);
+
+    void addToEventTotals(Map<Long, Double> deltas);
+
+    void forEachEventTotal(EventTotalHandler handler);
+
+    /**
+     * Streams every (user, event) pair of the table without materializing entities.
+     */
+    void forEachInteraction(InteractionHandler handler);
+
+    @FunctionalInterface
+    interface InteractionHandler {
+        void accept(long userId, long eventId);
+    }
+
+    @FunctionalInterface
+    interface EventTotalHandler {
+        void accept(long eventId, double total);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.practicum.repository;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.UserAction;
+import ru.practicum.model.UserActionId;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class UserActionBatchRepositoryImpl implements UserActionBatchRepository {
+
+    // score and timestamp move together, so an action that doesn't raise the score leaves the row untouched
+    static String UPSERT = """
+            INSERT INTO user_actions (user_id, event_id, user_score, timestamp_action)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (user_id, event_id) DO UPDATE
+            SET user_score = EXCLUDED.user_score, timestamp_action = EXCLUDED.timestamp_action
+            WHERE user_actions.user_score < EXCLUDED.user_score
+            """;
+    static String SELECT_SCORES = """
+            SELECT ua.user_id, ua.event_id, ua.user_score
+            FROM user_actions ua
+            JOIN unnest(?, ?) AS k(user_id, event_id) ON ua.user_id = k.user_id AND ua.event_id = k.event_id
+            """;
+    static String ADD_TO_TOTALS = """
+            INSERT INTO event_interaction_totals (event_id, total)
+            VALUES (?, ?)
+            ON CONFLICT (event_id) DO UPDATE SET total = event_interaction_totals.total + EXCLUDED.total
+            """;
+    static String SELECT_USERS_ACTIONS = """
+            SELECT user_id, event_id, user_score, timestamp_action
+            FROM user_actions
+            WHERE user_id = ANY(?)
+            """;
+    static String SELECT_INTERACTIONS = "SELECT user_id, event_id FROM user_actions";
+    static String SELECT_TOTALS = "SELECT event_id, total FROM event_interaction_totals";
+    static int FETCH_SIZE = 10_000;
+
+    JdbcTemplate jdbcTemplate;
+    PlatformTransactionManager transactionManager;
+
+    @Override
+    public void upsertMaxScore(Collection<UserAction> actions) {
+        jdbcTemplate.batchUpdate(UPSERT, actions, actions.size(), (statement, action) -> {
+            statement.setLong(1, action.getUserId());
+            statement.setLong(2, action.getEventId());
+            statement.setDouble(3, action.getScore());
+            // the column has no time zone and holds UTC, as hibernate.jdbc.time_zone does for the entity
+            statement.setObject(4, LocalDateTime.ofInstant(action.getTimestamp(), ZoneOffset.UTC));
+        });
+    }
+
+    @Override
+    public Map<UserActionId, Double> findScores(Collection<UserActionId> ids) {
+        Map<UserActionId, Double> scores = new HashMap<>();
+        if (ids.isEmpty()) {
+            return scores;
+        }
+        // two arrays keep it one statement whatever the batch size, instead of an IN list of row values
+        Long[] userIds = ids.stream().map(UserActionId::getUserId).toArray(Long[]::new);
+        Long[] eventIds = ids.stream().map(UserActionId::getEventId).toArray(Long[]::new);
+        jdbcTemplate.query(SELECT_SCORES, statement -> {
+            Array users = statement.getConnection().createArrayOf("bigint", userIds);
+            Array events = statement.getConnection().createArrayOf("bigint", eventIds);
+            statement.setArray(1, users);
+            statement.setArray(2, events);
+        }, (RowCallbackHandler) resultSet -> scores.put(
+                new UserActionId(resultSet.getLong(1), resultSet.getLong(2)), resultSet.getDouble(3)));
+        return scores;
+    }
+
+    @Override
+    public Map<Long, List<UserAction>> findAllInteractionsByUsers(Collection<Long> userIds) {
+        Map<Long, List<UserAction>> actions = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return actions;
+        }
+        Long[] users = userIds.toArray(Long[]::new);
+        jdbcTemplate.query(SELECT_USERS_ACTIONS,
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("bigint", users)),
+                (RowCallbackHandler) resultSet -> {
+                    UserAction action = new UserAction(resultSet.getLong(1), resultSet.getLong(2),
+                            resultSet.getDouble(3),
+                            resultSet.getObject(4, LocalDateTime.class).toInstant(ZoneOffset.UTC));
+                    actions.computeIfAbsent(action.getUserId(), k -> new ArrayList<>()).add(action);
+                });
+        return actions;
+    }
+
+    @Override
+    public void addToEventTotals(Map<Long, Double> deltas) {
+        List<Map.Entry<Long, Double>> entries = List.copyOf(deltas.entrySet());
+        jdbcTemplate.batchUpdate(ADD_TO_TOTALS, entries, entries.size(), (statement, entry) -> {
+            statement.setLong(1, entry.getKey());
+            statement.setDouble(2, entry.getValue());
+        });
+    }
+
+    @Override
+    public void forEachInteraction(InteractionHandler handler) {
+        streamAll(SELECT_INTERACTIONS, resultSet -> handler.accept(resultSet.getLong(1), resultSet.getLong(2)));
+    }
+
+    @Override
+    public void forEachEventTotal(EventTotalHandler handler) {
+        streamAll(SELECT_TOTALS, resultSet -> handler.accept(resultSet.getLong(1), resultSet.getDouble(2)));
+    }
+
+    private void streamAll(String sql, RowCallbackHandler rowHandler) {
+        // PostgreSQL only honours the fetch size inside a transaction
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rowHandler));
+    }
+}
@@ -8,24 +8,8 @@ import ru.practicum.model.UserActionId;
 
 import java.util.List;
 
-public interface UserActionRepository extends JpaRepository<UserAction, UserActionId> {
-
-    @Query("""
-    SELECT ua.eventId, SUM(ua.score)
-    FROM UserAction ua
-    WHERE ua.eventId IN :eventIds
-    GROUP BY ua.eventId
-    """)
-    List<Object[]> findInteractions(@Param("eventIds") List<Long> eventIds);
-
-    @Query("""
-    SELECT ua.eventId
-    FROM UserAction ua
-    WHERE ua.userId = :userId
-    ORDER BY ua.timestamp DESC
-    LIMIT :limit
-    """)
-    List<Long> findRecentEventIdsByUserId(@Param("userId") long userId, @Param("limit") long limit);
+public interface UserActionRepository extends JpaRepository<UserAction, UserActionId>,
+        UserActionBatchRepository {
 
     @Query("""
      SELECT ua
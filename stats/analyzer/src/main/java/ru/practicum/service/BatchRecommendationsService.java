@@ -0,0 +1,78 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.practicum.config.BatchRecommendationsConfig;
+import ru.practicum.ewm.stats.proto.UserRecommendationsProto;
+import ru.practicum.ewm.stats.proto.UsersPredictionsRequestProto;
+import ru.practicum.model.UserAction;
+import ru.practicum.repository.UserActionRepository;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Recommendations for many users in one call. Users are taken in chunks: the interactions of a chunk are read
+ * with a single query and its users are scored in parallel against the shared in-memory indexes. Chunks are
+ * computed only as the caller pulls results, so a flow-controlled stream never runs ahead of its client.
+ */
+@Slf4j
+@Service
+public class BatchRecommendationsService {
+
+    private final RecommendationsService recommendationsService;
+    private final UserActionRepository actionRepository;
+    private final int usersPerFetch;
+    private final ForkJoinPool scoringPool;
+
+    public BatchRecommendationsService(RecommendationsService recommendationsService,
+                                       UserActionRepository actionRepository,
+                                       BatchRecommendationsConfig config) {
+        this.recommendationsService = recommendationsService;
+        this.actionRepository = actionRepository;
+        this.usersPerFetch = Math.max(1, config.getUsersPerFetch());
+        int parallelism = config.getParallelism() > 0
+                ? config.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.scoringPool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * One entry per distinct requested user, in request order; users without interactions get an empty list.
+     */
+    public Iterator<UserRecommendationsProto> getRecommendationsForUsers(UsersPredictionsRequestProto request) {
+        List<Long> userIds = List.copyOf(new LinkedHashSet<>(request.getUserIdList()));
+        long maxResult = request.getMaxResult();
+        int chunks = (userIds.size() + usersPerFetch - 1) / usersPerFetch;
+        return IntStream.range(0, chunks)
+                .mapToObj(chunk -> userIds.subList(chunk * usersPerFetch,
+                        Math.min(userIds.size(), (chunk + 1) * usersPerFetch)))
+                .flatMap(chunkUsers -> recommendChunk(chunkUsers, maxResult).stream())
+                .iterator();
+    }
+
+    private List<UserRecommendationsProto> recommendChunk(List<Long> userIds, long maxResult) {
+        Map<Long, List<UserAction>> interactions = actionRepository.findAllInteractionsByUsers(userIds);
+        log.debug("пакет рекомендаций: {} пользователей, из них с взаимодействиями {}",
+                userIds.size(), interactions.size());
+        // a parallel stream started from inside the pool runs on the pool, not on the common one
+        return scoringPool.submit(() -> userIds.parallelStream()
+                        .map(userId -> UserRecommendationsProto.newBuilder()
+                                .setUserId(userId)
+                                .addAllEvent(recommendationsService.recommend(userId,
+                                        interactions.getOrDefault(userId, List.of()), maxResult))
+                                .build())
+                        .toList())
+                .join();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scoringPool.shutdownNow();
+    }
+}
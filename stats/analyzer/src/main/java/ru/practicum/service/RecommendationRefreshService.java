@@ -0,0 +1,84 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.practicum.config.BatchRecommendationsConfig;
+import ru.practicum.config.RecommendationStoreConfig;
+import ru.practicum.index.RecommendationStore;
+import ru.practicum.model.UserAction;
+import ru.practicum.repository.UserActionRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job recomputing the stale lists of the recommendation store. It runs on a single thread, so
+ * refreshing never takes more than one core away from request handling.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecommendationRefreshService {
+
+    private final RecommendationStore store;
+    private final RecommendationsService recommendationsService;
+    private final UserActionRepository actionRepository;
+    private final RecommendationStoreConfig storeConfig;
+    private final BatchRecommendationsConfig batchConfig;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!storeConfig.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = storeConfig.getRefreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void refresh() {
+        List<Long> stale = store.drainStale();
+        if (stale.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        long topN = storeConfig.getTopN();
+        int usersPerFetch = Math.max(1, batchConfig.getUsersPerFetch());
+        try {
+            for (int from = 0; from < stale.size(); from += usersPerFetch) {
+                List<Long> userIds = stale.subList(from, Math.min(stale.size(), from + usersPerFetch));
+                Map<Long, List<UserAction>> interactions = actionRepository.findAllInteractionsByUsers(userIds);
+                for (Long userId : userIds) {
+                    List<UserAction> userInteractions = interactions.getOrDefault(userId, List.of());
+                    store.refresh(userId, recommendationsService.recommend(userId, userInteractions, topN),
+                            recommendationsService.recentEvents(userInteractions, topN));
+                }
+            }
+            log.debug("обновлено рекомендаций: {} за {} мс, в хранилище {}", stale.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), store.size());
+        } catch (Exception e) {
+            // scheduled tasks stop repeating once they throw; the users are retried on the next run instead
+            log.error("ошибка обновления рекомендаций: {}", e.getMessage(), e);
+            store.usersChanged(stale);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package ru.practicum.service;
 
-import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -8,17 +7,23 @@ import ru.practicum.ewm.stats.proto.InteractionsCountRequestProto;
 import ru.practicum.ewm.stats.proto.RecommendedEventProto;
 import ru.practicum.ewm.stats.proto.SimilarEventsRequestProto;
 import ru.practicum.ewm.stats.proto.UserPredictionsRequestProto;
+import ru.practicum.index.InteractionTotalsIndex;
+import ru.practicum.index.NeighbourIndex;
+import ru.practicum.index.RecommendationStore;
+import ru.practicum.index.Neighbours;
+import ru.practicum.index.SeenEventsIndex;
 import ru.practicum.mapper.RecommendationsMapper;
-import ru.practicum.model.EventSimilarity;
 import ru.practicum.model.UserAction;
-import ru.practicum.repository.SimilarityRepository;
 import ru.practicum.repository.UserActionRepository;
 
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
@@ -26,69 +31,113 @@ import java.util.stream.Collectors;
 public class RecommendationsService {
 
     private final UserActionRepository actionRepository;
-    private final SimilarityRepository similarityRepository;
+    private final NeighbourIndex neighbourIndex;
+    private final SeenEventsIndex seenEventsIndex;
+    private final InteractionTotalsIndex interactionTotalsIndex;
+    private final RecommendationStore recommendationStore;
 
-    public void getRecommendationsForUser(UserPredictionsRequestProto request,
-                                          StreamObserver<RecommendedEventProto> responseObserver) {
+    /**
+     * Served from the precomputed store when max_result matches its top-N, minus anything the user has seen
+     * since the list was last refreshed. On a miss the list is ranked live, up front, and stored.
+     */
+    public Iterator<RecommendedEventProto> getRecommendationsForUser(UserPredictionsRequestProto request) {
 
         long userId = request.getUserId();
         long maxResult = request.getMaxResult();
+        if (!recommendationStore.serves(maxResult)) {
+            return recommend(userId, actionRepository.findAllInteractionsByUser(userId), maxResult).iterator();
+        }
 
-        List<Long> userRecentActionsEvents = actionRepository.findRecentEventIdsByUserId(userId, maxResult);
-        if (userRecentActionsEvents.isEmpty()) {
-            return;
+        List<RecommendedEventProto> recommendations = recommendationStore.get(userId);
+        if (recommendations == null) {
+            return recommendAndStore(userId, maxResult).iterator();
         }
+        return recommendations.stream()
+                .filter(recommendation -> !seenEventsIndex.hasSeen(userId, recommendation.getEventId()))
+                .iterator();
+    }
 
-        List<UserAction> allUserInteractions = actionRepository.findAllInteractionsByUser(userId);
-        List<Long> userEventIds = extractEventIds(allUserInteractions);
+    /**
+     * Ranks recommendations from interactions the caller has already loaded. Reads only the in-memory indexes,
+     * so it is safe to call from several threads at once.
+     */
+    public List<RecommendedEventProto> recommend(long userId, List<UserAction> allUserInteractions, long maxResult) {
+        if (allUserInteractions.isEmpty()) {
+            return List.of();
+        }
 
-        List<Long> similarities = findSimilarUnseenEvents(userRecentActionsEvents, userEventIds, maxResult);
+        List<Long> userRecentActionsEvents = recentEvents(allUserInteractions, maxResult);
         Map<Long, Double> eventScore = createEventScoreMap(allUserInteractions);
 
-        List<RecommendedEventProto> recommendations = generateRecommendations(
-                similarities, userEventIds, eventScore, maxResult
-        );
+        List<Long> similarities = findSimilarUnseenEvents(userId, userRecentActionsEvents, maxResult);
 
-        sendRecommendations(recommendations, responseObserver);
+        return generateRecommendations(similarities, eventScore, maxResult);
     }
 
-    public void getSimilarEvents(SimilarEventsRequestProto request,
-                                 StreamObserver<RecommendedEventProto> responseObserver) {
+    /**
+     * Lazy: neighbours are read from the index and filtered only as the caller pulls them.
+     */
+    public Iterator<RecommendedEventProto> getSimilarEvents(SimilarEventsRequestProto request) {
 
-        List<RecommendedEventProto> eventsSimilarity = similarityRepository.findByEventIdForUser(request.getEventId(),
-                        request.getUserId(), request.getMaxResult()).stream()
-                .map(e -> RecommendationsMapper.toRecommendedEventProto(
-                        e.getFirst() == request.getEventId() ? e.getSecond() : e.getFirst(), e.getScore()
-                )).toList();
-
-        for (RecommendedEventProto proto : eventsSimilarity) {
-            responseObserver.onNext(proto);
-        }
+        long userId = request.getUserId();
+        Neighbours neighbours = neighbourIndex.neighbours(request.getEventId());
+        return IntStream.range(0, neighbours.size())
+                .filter(i -> !seenEventsIndex.hasSeen(userId, neighbours.event(i)))
+                .limit(request.getMaxResult())
+                .mapToObj(i -> RecommendationsMapper.toRecommendedEventProto(neighbours.event(i), neighbours.score(i)))
+                .iterator();
     }
 
-    public void getInteractionsCount(InteractionsCountRequestProto request,
-                                     StreamObserver<RecommendedEventProto> responseObserver) {
+    public Iterator<RecommendedEventProto> getInteractionsCount(InteractionsCountRequestProto request) {
 
-        List<RecommendedEventProto> eventInteractions = actionRepository.findInteractions(request.getEventIdList())
-                .stream().map(
-                        e -> RecommendedEventProto.newBuilder().setEventId((long) e[0]).setScore((double) e[1]).build()
-                ).toList();
+        return new LinkedHashSet<>(request.getEventIdList()).stream()
+                .filter(eventId -> interactionTotalsIndex.total(eventId) != null)
+                .map(eventId -> RecommendationsMapper.toRecommendedEventProto(eventId,
+                        interactionTotalsIndex.total(eventId)))
+                .iterator();
+    }
 
-        for (RecommendedEventProto proto : eventInteractions) {
-            responseObserver.onNext(proto);
+    private List<RecommendedEventProto> recommendAndStore(long userId, long maxResult) {
+        recommendationStore.reserve(userId);
+        try {
+            List<UserAction> allUserInteractions = actionRepository.findAllInteractionsByUser(userId);
+            List<RecommendedEventProto> recommendations = recommend(userId, allUserInteractions, maxResult);
+            recommendationStore.put(userId, recommendations, recentEvents(allUserInteractions, maxResult));
+            return recommendations;
+        } catch (RuntimeException e) {
+            recommendationStore.cancel(userId);
+            throw e;
         }
     }
 
-    private List<Long> extractEventIds(List<UserAction> userActions) {
-        return userActions.stream()
+    /**
+     * The user's latest events, the ones recommendation candidates are drawn from.
+     */
+    public List<Long> recentEvents(List<UserAction> allUserInteractions, long maxResult) {
+        return allUserInteractions.stream()
+                .sorted(Comparator.comparing(UserAction::getTimestamp).reversed())
+                .limit(maxResult)
                 .map(UserAction::getEventId)
                 .toList();
     }
 
-    private List<Long> findSimilarUnseenEvents(List<Long> recentEvents, List<Long> userEventIds, long maxResult) {
-        return similarityRepository.findSimilarUnseenEvents(recentEvents, userEventIds, maxResult)
-                .stream()
-                .map(es -> recentEvents.contains(es.getFirst()) ? es.getSecond() : es.getFirst())
+    // rows are sorted by score, so each recent event contributes at most its first maxResult unseen neighbours
+    private List<Long> findSimilarUnseenEvents(long userId, List<Long> recentEvents, long maxResult) {
+        Map<Long, Double> bestScore = new HashMap<>();
+        for (Long recentEvent : recentEvents) {
+            Neighbours neighbours = neighbourIndex.neighbours(recentEvent);
+            long taken = 0;
+            for (int i = 0; i < neighbours.size() && taken < maxResult; i++) {
+                if (!seenEventsIndex.hasSeen(userId, neighbours.event(i))) {
+                    bestScore.merge(neighbours.event(i), neighbours.score(i), Math::max);
+                    taken++;
+                }
+            }
+        }
+        return bestScore.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(maxResult)
+                .map(Map.Entry::getKey)
                 .toList();
     }
 
@@ -101,64 +150,34 @@ public class RecommendationsService {
     }
 
     private List<RecommendedEventProto> generateRecommendations(List<Long> candidateEvents,
-                                                                List<Long> userEventIds,
                                                                 Map<Long, Double> eventScore,
                                                                 long maxResult) {
-        List<EventSimilarity> allSimilarities = similarityRepository
-                .findTopKSimilarUserEvents(candidateEvents, userEventIds, maxResult);
-
         return candidateEvents.stream()
-                .map(candidateId -> createRecommendation(candidateId, allSimilarities, eventScore))
+                .map(candidateId -> RecommendedEventProto.newBuilder()
+                        .setEventId(candidateId)
+                        .setScore(calculatePredictedScore(candidateId, eventScore, maxResult))
+                        .build())
                 .sorted(Comparator.comparingDouble(RecommendedEventProto::getScore).reversed())
                 .limit(maxResult)
                 .toList();
     }
 
-    private RecommendedEventProto createRecommendation(Long candidateId,
-                                                       List<EventSimilarity> allSimilarities,
-                                                       Map<Long, Double> eventScore) {
-        List<EventSimilarity> relevantSimilarities = filterRelevantSimilarities(candidateId, allSimilarities);
-        double predictedScore = calculatePredictedScore(candidateId, relevantSimilarities, eventScore);
-
-        return RecommendedEventProto.newBuilder()
-                .setEventId(candidateId)
-                .setScore(predictedScore)
-                .build();
-    }
-
-    private List<EventSimilarity> filterRelevantSimilarities(Long candidateId, List<EventSimilarity> allSimilarities) {
-        return allSimilarities.stream()
-                .filter(es -> Objects.equals(es.getFirst(), candidateId) ||
-                        Objects.equals(es.getSecond(), candidateId))
-                .toList();
-    }
-
-    private double calculatePredictedScore(Long candidateId,
-                                           List<EventSimilarity> similarities,
-                                           Map<Long, Double> eventScore) {
+    // weighted by the candidate's maxResult most similar events the user has interacted with
+    private double calculatePredictedScore(Long candidateId, Map<Long, Double> eventScore, long maxResult) {
         double weightedSum = 0;
         double simSum = 0;
 
-        for (EventSimilarity es : similarities) {
-            Long neighborId = getNeighborId(candidateId, es);
-            Double neighborScore = eventScore.get(neighborId);
-
+        Neighbours neighbours = neighbourIndex.neighbours(candidateId);
+        long used = 0;
+        for (int i = 0; i < neighbours.size() && used < maxResult; i++) {
+            Double neighborScore = eventScore.get(neighbours.event(i));
             if (neighborScore != null) {
-                weightedSum += neighborScore * es.getScore();
-                simSum += es.getScore();
+                weightedSum += neighborScore * neighbours.score(i);
+                simSum += neighbours.score(i);
+                used++;
             }
         }
 
         return simSum > 0 ? weightedSum / simSum : 0;
     }
-
-    private Long getNeighborId(Long candidateId, EventSimilarity similarity) {
-        return similarity.getFirst().equals(candidateId) ?
-                similarity.getSecond() : similarity.getFirst();
-    }
-
-    private void sendRecommendations(List<RecommendedEventProto> recommendations,
-                                     StreamObserver<RecommendedEventProto> responseObserver) {
-        recommendations.forEach(responseObserver::onNext);
-    }
 }
@@ -3,10 +3,18 @@ package ru.practicum.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
 import ru.practicum.mapper.SimilarityMapper;
+import ru.practicum.model.EventSimilarity;
+import ru.practicum.model.EventSimilarityId;
 import ru.practicum.repository.SimilarityRepository;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -14,12 +22,34 @@ public class SimilarityService {
 
     private final SimilarityRepository repository;
 
-    public void save(EventSimilarityAvro avro) {
+    /**
+     * Writes one poll's worth of similarities. Only the last record of every pair counts, so the pairs left
+     * after deduplication can be upserted and deleted in two batches regardless of their order in the poll.
+     */
+    @Transactional
+    public void saveAll(List<EventSimilarityAvro> avros) {
+        Map<EventSimilarityId, EventSimilarityAvro> latest = new LinkedHashMap<>();
+        for (EventSimilarityAvro avro : avros) {
+            latest.put(SimilarityMapper.toEventSimilarityId(avro), avro);
+        }
 
-        log.info("сохранение похожих событий {} и {}. показатель сходства: {}",
-                avro.getEventA(), avro.getEventB(), avro.getScore());
+        List<EventSimilarity> upserts = new ArrayList<>(latest.size());
+        List<EventSimilarityId> retracted = new ArrayList<>();
+        latest.forEach((id, avro) -> {
+            if (avro.getRetracted()) {
+                retracted.add(id);
+            } else {
+                upserts.add(SimilarityMapper.toEventSimilarity(avro));
+            }
+        });
 
-        repository.deleteById(SimilarityMapper.toEventSimilarityId(avro));
-        repository.save(SimilarityMapper.toEventSimilarity(avro));
+        if (!upserts.isEmpty()) {
+            repository.upsertAll(upserts);
+        }
+        if (!retracted.isEmpty()) {
+            repository.deleteAllByIds(retracted);
+        }
+        log.debug("сохранено пар событий: {}, удалено вытесненных из top-K: {}, записей в пачке: {}",
+                upserts.size(), retracted.size(), avros.size());
     }
 }
@@ -4,14 +4,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import ru.practicum.converter.WeightConverter;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.stats.avro.UserActionAvro;
 import ru.practicum.mapper.UserActionMapper;
 import ru.practicum.model.UserAction;
 import ru.practicum.model.UserActionId;
 import ru.practicum.repository.UserActionRepository;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -20,29 +24,36 @@ public class UserActionService {
 
     private final UserActionRepository repository;
 
-    public void save(UserActionAvro avro) {
-
-        log.info("сохранение действия {} пользователя: {} для события с id: {}",
-                avro.getActionType(), avro.getUserId(), avro.getEventId());
-
-        UserActionId id = UserActionMapper.toUserActionId(avro);
-        Optional<UserAction> existingAction = repository.findById(id);
-
-        if (shouldSaveAction(existingAction, avro)) {
-            UserAction userAction = UserActionMapper.toUserAction(avro);
-            repository.save(userAction);
+    /**
+     * Writes one poll's worth of actions. Per (user, event) only the first action with the highest weight
+     * can change the stored row, the same one that would win if the actions were saved one by one.
+     * Returns how much each event's interaction total grew.
+     */
+    @Transactional
+    public Map<Long, Double> saveAll(List<UserActionAvro> avros) {
+        Map<UserActionId, UserAction> strongest = new LinkedHashMap<>();
+        for (UserActionAvro avro : avros) {
+            UserAction action = UserActionMapper.toUserAction(avro);
+            strongest.merge(UserActionMapper.toUserActionId(avro), action,
+                    (current, candidate) -> candidate.getScore() > current.getScore() ? candidate : current);
         }
-    }
 
-    private boolean shouldSaveAction(Optional<UserAction> existingAction, UserActionAvro newAction) {
-
-        if (existingAction.isEmpty()) {
-            return true;
+        Map<UserActionId, Double> stored = repository.findScores(strongest.keySet());
+        List<UserAction> increases = new ArrayList<>();
+        Map<Long, Double> totalDeltas = new HashMap<>();
+        strongest.forEach((id, action) -> {
+            double storedScore = stored.getOrDefault(id, 0.0);
+            if (action.getScore() > storedScore) {
+                increases.add(action);
+                totalDeltas.merge(action.getEventId(), action.getScore() - storedScore, Double::sum);
+            }
+        });
+
+        if (!increases.isEmpty()) {
+            repository.upsertMaxScore(increases);
+            repository.addToEventTotals(totalDeltas);
         }
-
-        double existingScore = existingAction.get().getScore();
-        double requiredWeight = WeightConverter.getWeightOnAction(newAction.getActionType());
-
-        return existingScore < requiredWeight;
+        log.debug("сохранено действий пользователей: {}, записей в пачке: {}", increases.size(), avros.size());
+        return totalDeltas;
     }
 }
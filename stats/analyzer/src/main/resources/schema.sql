@@ -11,4 +11,17 @@ CREATE TABLE IF NOT EXISTS user_actions (
     user_score DOUBLE PRECISION NOT NULL,
     timestamp_action TIMESTAMP WITHOUT TIME ZONE NOT NULL,
     PRIMARY KEY(user_id, event_id)
-);
\ No newline at end of file
+);
+
+-- running SUM(user_score) per event, maintained by the analyzer as scores rise
+CREATE TABLE IF NOT EXISTS event_interaction_totals (
+    event_id BIGINT PRIMARY KEY,
+    total DOUBLE PRECISION NOT NULL
+);
+
+-- one-time backfill when the table is introduced next to existing actions
+INSERT INTO event_interaction_totals (event_id, total)
+SELECT event_id, SUM(user_score)
+FROM user_actions
+WHERE NOT EXISTS (SELECT 1 FROM event_interaction_totals)
+GROUP BY event_id;
\ No newline at end of file
@@ -0,0 +1,80 @@
+package ru.practicum.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventBitmapTest {
+
+    private static final int ARRAY_MAX_SIZE = 4096;
+
+    @Test
+    void switchesAChunkToABitmapPastFourThousandNinetySixIds() {
+        EventBitmap bitmap = new EventBitmap();
+        // every other id, so the array holds values the bitmap has to carry over
+        for (int i = 0; i < ARRAY_MAX_SIZE; i++) {
+            assertTrue(bitmap.add(2L * i));
+        }
+        assertFalse(bitmap.add(0));
+        assertEquals(ARRAY_MAX_SIZE, bitmap.cardinality());
+
+        assertTrue(bitmap.add(1));
+        assertFalse(bitmap.add(1));
+
+        assertEquals(ARRAY_MAX_SIZE + 1, bitmap.cardinality());
+        for (int i = 0; i < ARRAY_MAX_SIZE; i++) {
+            assertTrue(bitmap.contains(2L * i));
+        }
+        assertTrue(bitmap.contains(1));
+        assertFalse(bitmap.contains(3));
+        assertFalse(bitmap.contains(2L * ARRAY_MAX_SIZE));
+    }
+
+    @Test
+    void keepsChunksApartWhenTheirLowBitsMatch() {
+        EventBitmap bitmap = new EventBitmap();
+        long[] ids = {5, (1L << 16) + 5, (3L << 16) + 5, -5, Long.MIN_VALUE + 5, Long.MAX_VALUE};
+        // inserted out of chunk order, negative ids sort above every positive chunk
+        for (int i = ids.length - 1; i >= 0; i -= 2) {
+            assertTrue(bitmap.add(ids[i]));
+        }
+        for (int i = ids.length - 2; i >= 0; i -= 2) {
+            assertTrue(bitmap.add(ids[i]));
+        }
+
+        assertEquals(ids.length, bitmap.cardinality());
+        for (long id : ids) {
+            assertTrue(bitmap.contains(id));
+            assertFalse(bitmap.add(id));
+        }
+        assertFalse(bitmap.contains((2L << 16) + 5));
+        assertFalse(bitmap.contains(-6));
+        assertFalse(bitmap.contains(Long.MIN_VALUE));
+    }
+
+    @Test
+    void matchesHashSetAcrossChunksAndContainerTypes() {
+        SplittableRandom random = new SplittableRandom(11);
+        EventBitmap bitmap = new EventBitmap();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            // a dense chunk that turns into a bitmap, and sparse ids on both sides of zero
+            long id = random.nextInt(3) == 0
+                    ? random.nextLong(-(1L << 40), 1L << 40)
+                    : random.nextLong(1L << 16, (1L << 16) + 20_000);
+            assertEquals(expected.add(id), bitmap.add(id));
+            long probe = random.nextLong(-(1L << 40), 1L << 40);
+            assertEquals(expected.contains(probe), bitmap.contains(probe));
+        }
+        assertEquals(expected.size(), bitmap.cardinality());
+        for (long id : expected) {
+            assertTrue(bitmap.contains(id));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.practicum.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongSetTest {
+
+    // seven to twelve values live in a table of 16 slots
+    private static final int MASK = 15;
+
+    @Test
+    void keepsCollidingValuesReachableAfterRemovingTheHeadOfAWrappingRun() {
+        long[] colliding = valuesWithHome(MASK, 4);
+        LongSet set = filledTo16Slots(colliding);
+
+        // the run wraps from the last slot to the first ones, the values behind the gap shift back over it
+        assertTrue(set.remove(colliding[0]));
+        assertTrue(set.remove(colliding[2]));
+
+        assertFalse(set.contains(colliding[0]));
+        assertFalse(set.contains(colliding[2]));
+        assertTrue(set.contains(colliding[1]));
+        assertTrue(set.contains(colliding[3]));
+        assertFalse(set.remove(colliding[2]));
+    }
+
+    @Test
+    void doesNotShiftAValueBeforeItsHomeSlot() {
+        long[] first = valuesWithHome(5, 2);
+        long second = valuesWithHome(6, 1)[0];
+        // home slot 6, probed on to 7 behind the run of slot 5
+        LongSet set = filledTo16Slots(first[0], first[1], second);
+
+        assertTrue(set.remove(first[0]));
+
+        assertTrue(set.contains(first[1]));
+        assertTrue(set.contains(second));
+        assertTrue(set.remove(second));
+        assertTrue(set.contains(first[1]));
+    }
+
+    @Test
+    void shrinksBackAsItEmpties() {
+        LongSet set = new LongSet();
+        long emptyBytes = set.estimatedBytes();
+        for (long value = 0; value < 1_000; value++) {
+            set.add(value);
+        }
+        for (long value = 0; value < 999; value++) {
+            assertTrue(set.remove(value));
+        }
+
+        // halved whenever it falls below an eighth full: one value is left in 8 slots, an empty set in 4
+        assertEquals(1, set.size());
+        assertTrue(set.contains(999));
+        assertEquals(emptyBytes + 6 * Long.BYTES, set.estimatedBytes());
+        assertTrue(set.remove(999));
+        assertTrue(set.isEmpty());
+        assertEquals(emptyBytes + 2 * Long.BYTES, set.estimatedBytes());
+        assertTrue(set.add(999));
+        assertTrue(set.contains(999));
+    }
+
+    @Test
+    void matchesHashSetThroughGrowthAndShrinking() {
+        SplittableRandom random = new SplittableRandom(7);
+        LongSet set = new LongSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            long value = random.nextLong(-500, 500);
+            // adds win in the first half, removals in the second, so the table grows and shrinks again
+            int op = random.nextInt(4);
+            if (op == 0) {
+                assertEquals(expected.contains(value), set.contains(value));
+            } else if (op == 3 ^ i < 100_000) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        Set<Long> actual = new HashSet<>();
+        set.forEach(actual::add);
+        assertEquals(expected, actual);
+    }
+
+    // fillers homed far from the values under test grow the table to 16 slots first, so no rehash reorders the runs
+    private static LongSet filledTo16Slots(long... values) {
+        LongSet set = new LongSet();
+        for (long filler : valuesWithHome(10, 7)) {
+            set.add(filler);
+        }
+        for (long value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    private static long[] valuesWithHome(int slot, int count) {
+        long[] values = new long[count];
+        int found = 0;
+        for (long value = 1; found < values.length; value++) {
+            if (LongSet.slot(value, MASK) == slot) {
+                values[found++] = value;
+            }
+        }
+        return values;
+    }
+}
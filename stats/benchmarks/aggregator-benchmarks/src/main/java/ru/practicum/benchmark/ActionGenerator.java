@@ -0,0 +1,39 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf-distributed user actions: a few users and events account for most of the traffic.
+ * Views dominate, registrations and likes are rarer. Reuses one record, callers must not keep it.
+ */
+public final class ActionGenerator {
+
+    private final ZipfSampler userSampler;
+    private final ZipfSampler eventSampler;
+    private final SplittableRandom random;
+    private final UserActionAvro action;
+
+    public ActionGenerator(int users, int events, double skew, long seed) {
+        userSampler = new ZipfSampler(users, skew);
+        eventSampler = new ZipfSampler(events, skew);
+        random = new SplittableRandom(seed);
+        action = UserActionAvro.newBuilder()
+                .setUserId(0)
+                .setEventId(0)
+                .setActionType(ActionTypeAvro.VIEW)
+                .setTimestamp(Instant.now())
+                .build();
+    }
+
+    public UserActionAvro next() {
+        action.setUserId(userSampler.sample(random) + 1);
+        action.setEventId(eventSampler.sample(random) + 1);
+        int type = random.nextInt(10);
+        action.setActionType(type < 7 ? ActionTypeAvro.VIEW : type < 9 ? ActionTypeAvro.REGISTER : ActionTypeAvro.LIKE);
+        return action;
+    }
+}
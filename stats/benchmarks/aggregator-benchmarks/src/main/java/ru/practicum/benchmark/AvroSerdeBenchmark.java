@@ -0,0 +1,104 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.serialization.AvroCodec;
+import ru.practicum.serialization.AvroSerializer;
+import ru.practicum.serialization.BaseAvroDeserializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class AvroSerdeBenchmark {
+
+    private static final String TOPIC = "benchmark";
+
+    private AvroSerializer serializer;
+    private BaseAvroDeserializer<UserActionAvro> actionDeserializer;
+    private BaseAvroDeserializer<EventSimilarityAvro> similarityDeserializer;
+
+    private AvroCodec<UserActionAvro> actionCodec;
+
+    private UserActionAvro action;
+    private UserActionAvro reusedAction;
+    private EventSimilarityAvro similarity;
+    private byte[] actionBytes;
+    private byte[] similarityBytes;
+
+    @Setup
+    public void setUp() {
+        serializer = new AvroSerializer();
+        actionDeserializer = new BaseAvroDeserializer<>(UserActionAvro.getClassSchema());
+        similarityDeserializer = new BaseAvroDeserializer<>(EventSimilarityAvro.getClassSchema());
+        actionCodec = AvroCodec.forSchema(UserActionAvro.getClassSchema());
+        reusedAction = new UserActionAvro();
+
+        action = UserActionAvro.newBuilder()
+                .setUserId(123_456)
+                .setEventId(789_012)
+                .setActionType(ActionTypeAvro.REGISTER)
+                .setTimestamp(Instant.now())
+                .build();
+        similarity = EventSimilarityAvro.newBuilder()
+                .setEventA(789_012)
+                .setEventB(789_345)
+                .setScore(0.4242)
+                .setTimestamp(Instant.now())
+                .build();
+        actionBytes = serializer.serialize(TOPIC, action);
+        similarityBytes = serializer.serialize(TOPIC, similarity);
+    }
+
+    @Benchmark
+    public byte[] serializeUserAction() {
+        return serializer.serialize(TOPIC, action);
+    }
+
+    @Benchmark
+    public UserActionAvro deserializeUserAction() {
+        return actionDeserializer.deserialize(TOPIC, actionBytes);
+    }
+
+    @Benchmark
+    public UserActionAvro decodeUserActionReusingRecord() throws IOException {
+        return actionCodec.decode(actionBytes, 0, actionBytes.length, reusedAction);
+    }
+
+    @Benchmark
+    public UserActionAvro roundTripUserAction() {
+        return actionDeserializer.deserialize(TOPIC, serializer.serialize(TOPIC, action));
+    }
+
+    @Benchmark
+    public byte[] serializeEventSimilarity() {
+        return serializer.serialize(TOPIC, similarity);
+    }
+
+    @Benchmark
+    public EventSimilarityAvro deserializeEventSimilarity() {
+        return similarityDeserializer.deserialize(TOPIC, similarityBytes);
+    }
+
+    @Benchmark
+    public EventSimilarityAvro roundTripEventSimilarity() {
+        return similarityDeserializer.deserialize(TOPIC, serializer.serialize(TOPIC, similarity));
+    }
+}
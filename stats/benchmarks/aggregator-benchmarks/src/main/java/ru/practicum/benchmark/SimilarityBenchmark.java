@@ -0,0 +1,73 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.service.UserActionDomainService;
+import ru.practicum.storage.HashMapStateStore;
+import ru.practicum.storage.InteractionWindow;
+import ru.practicum.storage.PrimitiveStateStore;
+import ru.practicum.storage.SimilarityStateStore;
+import ru.practicum.storage.StateStoreType;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one user action in the aggregator. The per-action cost should stay flat as the number of events
+ * grows, since only the events of the acting user are visited.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class SimilarityBenchmark {
+
+    @Param({"HASH_MAP", "PRIMITIVE"})
+    private StateStoreType store;
+
+    @Param({"10000", "100000", "1000000"})
+    private int events;
+
+    @Param("100000")
+    private int users;
+
+    @Param("1.0")
+    private double skew;
+
+    @Param("200000")
+    private int prefill;
+
+    private UserActionDomainService service;
+    private ActionGenerator actions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimilarityStateStore stateStore = switch (store) {
+            case HASH_MAP -> new HashMapStateStore();
+            case PRIMITIVE -> new PrimitiveStateStore();
+        };
+        service = new UserActionDomainService(stateStore, new InteractionWindow(0));
+        actions = new ActionGenerator(users, events, skew, 42);
+        for (int i = 0; i < prefill; i++) {
+            service.calculateSimilarityEvents(actions.next());
+        }
+    }
+
+    @Benchmark
+    public List<EventSimilarityAvro> calculateSimilarityEvents() {
+        return service.calculateSimilarityEvents(actions.next());
+    }
+}
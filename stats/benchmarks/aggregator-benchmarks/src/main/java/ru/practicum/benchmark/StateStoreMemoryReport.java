@@ -0,0 +1,71 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.service.UserActionDomainService;
+import ru.practicum.storage.HashMapStateStore;
+import ru.practicum.storage.InteractionWindow;
+import ru.practicum.storage.PrimitiveStateStore;
+import ru.practicum.storage.SimilarityStateStore;
+import ru.practicum.storage.StateStoreStats;
+
+import java.lang.ref.Reference;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Feeds the same Zipf workload to both state stores and prints the heap each of them retains.
+ * Usage: {@code java -cp aggregator-benchmarks.jar ru.practicum.benchmark.StateStoreMemoryReport [actions] [users] [events]}
+ */
+public final class StateStoreMemoryReport {
+
+    public static void main(String[] args) {
+        int actions = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int events = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        // stores are built one at a time so the previous one can be collected before the next is filled
+        List<Supplier<SimilarityStateStore>> stores = List.of(HashMapStateStore::new, PrimitiveStateStore::new);
+        for (Supplier<SimilarityStateStore> storeFactory : stores) {
+            ActionGenerator generator = new ActionGenerator(users, events, 1.0, 42);
+            long baseline = usedHeap();
+            SimilarityStateStore store = storeFactory.get();
+            UserActionDomainService service = new UserActionDomainService(store, new InteractionWindow(0));
+            for (int i = 0; i < actions; i++) {
+                // the coalescer keeps the last emitted score of every pair it sends
+                for (EventSimilarityAvro similarity : service.calculateSimilarityEvents(generator.next())) {
+                    store.putSimilarity(similarity.getEventA(), similarity.getEventB(), similarity.getScore());
+                }
+            }
+            // retained heap is measured the same way for both stores; stats() only estimates its own layout
+            long retained = usedHeap() - baseline;
+            StateStoreStats stats = store.stats();
+            System.out.printf("%-10s users=%d weights=%d events=%d pairs=%d retained=%d (%.1f MB) bytes/pair=%.1f"
+                            + " estimated bytes/pair=%.1f%n",
+                    stats.store(), stats.users(), stats.userWeights(), stats.events(), stats.pairs(), retained,
+                    retained / 1024.0 / 1024.0, stats.pairs() == 0 ? 0 : (double) retained / stats.pairs(),
+                    stats.bytesPerPair());
+            Reference.reachabilityFence(store);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // a few rounds until the figure stops shrinking, System.gc() alone is only a hint
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
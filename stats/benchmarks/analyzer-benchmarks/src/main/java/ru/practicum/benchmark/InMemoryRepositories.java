@@ -0,0 +1,122 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.model.EventSimilarity;
+import ru.practicum.model.UserAction;
+import ru.practicum.repository.SimilarityBatchRepository;
+import ru.practicum.repository.SimilarityRepository;
+import ru.practicum.repository.UserActionBatchRepository;
+import ru.practicum.repository.UserActionRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository stand-ins answering the analyzer queries from memory, so the benchmark measures the service
+ * itself rather than PostgreSQL. Only the methods used by RecommendationsService and the in-memory indexes are
+ * implemented.
+ */
+final class InMemoryRepositories {
+
+    private static final Comparator<EventSimilarity> BY_SCORE_DESC =
+            Comparator.comparingDouble(EventSimilarity::getScore).reversed();
+
+    private final Map<Long, List<UserAction>> actionsByUser = new HashMap<>();
+    private final Map<Long, Double> interactionsByEvent = new HashMap<>();
+    private final Map<Long, List<EventSimilarity>> similaritiesByEvent = new HashMap<>();
+
+    // (user, event) is the primary key of user_actions, so a repeated pair keeps its maximum weight
+    void addAction(UserAction action) {
+        List<UserAction> userActions = actionsByUser.computeIfAbsent(action.getUserId(), k -> new ArrayList<>());
+        double delta = action.getScore();
+        for (UserAction existing : userActions) {
+            if (existing.getEventId().equals(action.getEventId())) {
+                if (existing.getScore() >= action.getScore()) {
+                    return;
+                }
+                delta -= existing.getScore();
+                existing.setScore(action.getScore());
+                existing.setTimestamp(action.getTimestamp());
+                interactionsByEvent.merge(action.getEventId(), delta, Double::sum);
+                return;
+            }
+        }
+        userActions.add(action);
+        interactionsByEvent.merge(action.getEventId(), delta, Double::sum);
+    }
+
+    void addSimilarity(EventSimilarity similarity) {
+        List<EventSimilarity> firstNeighbours = similaritiesByEvent.getOrDefault(similarity.getFirst(), List.of());
+        for (EventSimilarity existing : firstNeighbours) {
+            if (existing.getFirst().equals(similarity.getFirst()) && existing.getSecond().equals(similarity.getSecond())) {
+                existing.setScore(similarity.getScore());
+                return;
+            }
+        }
+        similaritiesByEvent.computeIfAbsent(similarity.getFirst(), k -> new ArrayList<>()).add(similarity);
+        similaritiesByEvent.computeIfAbsent(similarity.getSecond(), k -> new ArrayList<>()).add(similarity);
+    }
+
+    void seal() {
+        actionsByUser.values().forEach(actions ->
+                actions.sort(Comparator.comparing(UserAction::getTimestamp).reversed()));
+        similaritiesByEvent.values().forEach(similarities -> similarities.sort(BY_SCORE_DESC));
+    }
+
+    UserActionRepository userActionRepository() {
+        return (UserActionRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserActionRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findAllInteractionsByUser" -> userActions((long) args[0]);
+                    case "findAllInteractionsByUsers" -> {
+                        Map<Long, List<UserAction>> actions = new HashMap<>();
+                        for (Object userId : (Collection<?>) args[0]) {
+                            List<UserAction> userActions = userActions((Long) userId);
+                            if (!userActions.isEmpty()) {
+                                actions.put((Long) userId, userActions);
+                            }
+                        }
+                        yield actions;
+                    }
+                    case "forEachEventTotal" -> {
+                        UserActionBatchRepository.EventTotalHandler handler =
+                                (UserActionBatchRepository.EventTotalHandler) args[0];
+                        interactionsByEvent.forEach(handler::accept);
+                        yield null;
+                    }
+                    case "forEachInteraction" -> {
+                        UserActionBatchRepository.InteractionHandler handler =
+                                (UserActionBatchRepository.InteractionHandler) args[0];
+                        actionsByUser.values().forEach(actions ->
+                                actions.forEach(action -> handler.accept(action.getUserId(), action.getEventId())));
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    SimilarityRepository similarityRepository() {
+        return (SimilarityRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{SimilarityRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "forEachSimilarity" -> {
+                        forEachSimilarity((SimilarityBatchRepository.SimilarityRowHandler) args[0]);
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private List<UserAction> userActions(long userId) {
+        return actionsByUser.getOrDefault(userId, List.of());
+    }
+
+    // every pair is listed under both of its events, the first one owns it
+    private void forEachSimilarity(SimilarityBatchRepository.SimilarityRowHandler handler) {
+        similaritiesByEvent.forEach((eventId, similarities) -> similarities.stream()
+                .filter(es -> es.getFirst().equals(eventId))
+                .forEach(es -> handler.accept(es.getFirst(), es.getSecond(), es.getScore())));
+    }
+}
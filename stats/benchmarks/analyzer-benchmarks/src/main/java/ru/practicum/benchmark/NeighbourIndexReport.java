@@ -0,0 +1,61 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.ewm.stats.avro.EventSimilarityAvro;
+import ru.practicum.index.NeighbourIndex;
+import ru.practicum.model.EventSimilarity;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Loads a synthetic similarity table into the neighbour index, then streams updates through it, and prints
+ * footprint and rebuild times.
+ * Usage: {@code java -cp analyzer-benchmarks.jar ru.practicum.benchmark.NeighbourIndexReport [events] [neighbours] [updates]}
+ */
+public final class NeighbourIndexReport {
+
+    // records per consumer poll
+    private static final int POLL_SIZE = 500;
+
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int neighbours = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int updates = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        SplittableRandom random = new SplittableRandom(42);
+        InMemoryRepositories repositories = new InMemoryRepositories();
+        for (long first = 1; first <= events; first++) {
+            for (int i = 0; i < neighbours; i++) {
+                long second = random.nextLong(1, events + 1);
+                if (second != first) {
+                    repositories.addSimilarity(new EventSimilarity(Math.min(first, second), Math.max(first, second),
+                            random.nextDouble()));
+                }
+            }
+        }
+
+        NeighbourIndex index = new NeighbourIndex(repositories.similarityRepository());
+        index.load();
+        System.out.println("loaded:  " + index.stats());
+
+        Instant now = Instant.now();
+        long started = System.nanoTime();
+        List<EventSimilarityAvro> batch = new ArrayList<>(POLL_SIZE);
+        for (int i = 0; i < updates; i++) {
+            long first = random.nextLong(1, events + 1);
+            long second = random.nextLong(1, events + 1);
+            if (first != second) {
+                batch.add(new EventSimilarityAvro(Math.min(first, second), Math.max(first, second),
+                        random.nextDouble(), now, random.nextInt(10) == 0));
+            }
+            if (batch.size() == POLL_SIZE || i == updates - 1) {
+                index.apply(batch);
+                batch.clear();
+            }
+        }
+        System.out.printf("updates: %d in %d ms, %s%n", updates,
+                (System.nanoTime() - started) / 1_000_000, index.stats());
+    }
+}
@@ -0,0 +1,175 @@
+package ru.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.practicum.config.BatchRecommendationsConfig;
+import ru.practicum.config.RecommendationStoreConfig;
+import ru.practicum.ewm.stats.proto.InteractionsCountRequestProto;
+import ru.practicum.ewm.stats.proto.SimilarEventsRequestProto;
+import ru.practicum.ewm.stats.proto.UserPredictionsRequestProto;
+import ru.practicum.ewm.stats.proto.UsersPredictionsRequestProto;
+import ru.practicum.index.InteractionTotalsIndex;
+import ru.practicum.index.NeighbourIndex;
+import ru.practicum.index.RecommendationStore;
+import ru.practicum.index.SeenEventsIndex;
+import ru.practicum.model.EventSimilarity;
+import ru.practicum.model.UserAction;
+import ru.practicum.service.BatchRecommendationsService;
+import ru.practicum.service.RecommendationsService;
+
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request latency of the analyzer's recommendation paths over in-memory repositories and indexes.
+ * The numbers isolate the service's own work (collection shuffling, scoring, proto building) from query time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class RecommendationsServiceBenchmark {
+
+    private static final double[] WEIGHTS = {0.4, 0.8, 1.0};
+
+    @Param({"10000"})
+    public int users;
+
+    @Param({"5000"})
+    public int events;
+
+    @Param({"50"})
+    public int actionsPerUser;
+
+    @Param({"20"})
+    public int neighboursPerEvent;
+
+    @Param({"10"})
+    public int maxResult;
+
+    // users per GetRecommendationsForUsers call
+    @Param({"1000"})
+    public int batchUsers;
+
+    private RecommendationsService service;
+    private RecommendationsService storedService;
+    private BatchRecommendationsService batchService;
+    private SplittableRandom random;
+    private InteractionsCountRequestProto interactionsRequest;
+    private UsersPredictionsRequestProto usersRequest;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(42);
+        InMemoryRepositories repositories = new InMemoryRepositories();
+
+        Instant now = Instant.now();
+        for (long userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < actionsPerUser; i++) {
+                long eventId = popularEvent();
+                repositories.addAction(new UserAction(userId, eventId, WEIGHTS[random.nextInt(WEIGHTS.length)],
+                        now.minusSeconds(random.nextInt(86_400))));
+            }
+        }
+        for (long first = 1; first <= events; first++) {
+            for (int i = 0; i < neighboursPerEvent; i++) {
+                long second = popularEvent();
+                if (second != first) {
+                    repositories.addSimilarity(new EventSimilarity(Math.min(first, second), Math.max(first, second),
+                            random.nextDouble()));
+                }
+            }
+        }
+        repositories.seal();
+
+        NeighbourIndex neighbourIndex = new NeighbourIndex(repositories.similarityRepository());
+        neighbourIndex.load();
+        SeenEventsIndex seenEventsIndex = new SeenEventsIndex(repositories.userActionRepository());
+        seenEventsIndex.load();
+        InteractionTotalsIndex interactionTotalsIndex = new InteractionTotalsIndex(repositories.userActionRepository());
+        interactionTotalsIndex.load();
+        // the store is off so every call measures the live computation
+        RecommendationStoreConfig storeConfig = new RecommendationStoreConfig();
+        storeConfig.setEnabled(false);
+        service = new RecommendationsService(repositories.userActionRepository(), neighbourIndex, seenEventsIndex,
+                interactionTotalsIndex, new RecommendationStore(storeConfig));
+        RecommendationStoreConfig warmStoreConfig = new RecommendationStoreConfig();
+        warmStoreConfig.setTopN(maxResult);
+        storedService = new RecommendationsService(repositories.userActionRepository(), neighbourIndex,
+                seenEventsIndex, interactionTotalsIndex, new RecommendationStore(warmStoreConfig));
+        for (long userId = 1; userId <= users; userId++) {
+            storedService.getRecommendationsForUser(UserPredictionsRequestProto.newBuilder()
+                    .setUserId(userId)
+                    .setMaxResult(maxResult)
+                    .build());
+        }
+        batchService = new BatchRecommendationsService(service, repositories.userActionRepository(),
+                new BatchRecommendationsConfig());
+
+        InteractionsCountRequestProto.Builder interactions = InteractionsCountRequestProto.newBuilder();
+        for (int i = 0; i < maxResult; i++) {
+            interactions.addEventId(popularEvent());
+        }
+        interactionsRequest = interactions.build();
+
+        UsersPredictionsRequestProto.Builder batch = UsersPredictionsRequestProto.newBuilder().setMaxResult(maxResult);
+        for (int i = 0; i < batchUsers; i++) {
+            batch.addUserId(random.nextLong(1, users + 1));
+        }
+        usersRequest = batch.build();
+    }
+
+    // squaring a uniform sample skews picks towards low ids, giving a few popular events like real traffic
+    private long popularEvent() {
+        double u = random.nextDouble();
+        return 1 + (long) (u * u * events);
+    }
+
+    @Benchmark
+    public void recommendationsForUser(Blackhole blackhole) {
+        service.getRecommendationsForUser(UserPredictionsRequestProto.newBuilder()
+                .setUserId(random.nextLong(1, users + 1))
+                .setMaxResult(maxResult)
+                .build()).forEachRemaining(blackhole::consume);
+    }
+
+    @Benchmark
+    public void storedRecommendationsForUser(Blackhole blackhole) {
+        storedService.getRecommendationsForUser(UserPredictionsRequestProto.newBuilder()
+                .setUserId(random.nextLong(1, users + 1))
+                .setMaxResult(maxResult)
+                .build()).forEachRemaining(blackhole::consume);
+    }
+
+    @Benchmark
+    public void similarEvents(Blackhole blackhole) {
+        service.getSimilarEvents(SimilarEventsRequestProto.newBuilder()
+                .setEventId(random.nextLong(1, events + 1))
+                .setUserId(random.nextLong(1, users + 1))
+                .setMaxResult(maxResult)
+                .build()).forEachRemaining(blackhole::consume);
+    }
+
+    @Benchmark
+    public void interactionsCount(Blackhole blackhole) {
+        service.getInteractionsCount(interactionsRequest).forEachRemaining(blackhole::consume);
+    }
+
+    @Benchmark
+    public void recommendationsForUsers(Blackhole blackhole) {
+        batchService.getRecommendationsForUsers(usersRequest).forEachRemaining(blackhole::consume);
+    }
+}
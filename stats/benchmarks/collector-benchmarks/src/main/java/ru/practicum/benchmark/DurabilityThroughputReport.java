@@ -0,0 +1,146 @@
+package ru.practicum.benchmark;
+
+import com.google.protobuf.Timestamp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import ru.practicum.config.CollectorSettingsConfig;
+import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.config.ProducerConfig;
+import ru.practicum.dedup.DuplicateActionFilter;
+import ru.practicum.ewm.stats.proto.ActionTypeProto;
+import ru.practicum.ewm.stats.proto.UserActionProto;
+import ru.practicum.mapper.UserActionMapper;
+import ru.practicum.service.BestEffortLane;
+import ru.practicum.service.Durability;
+import ru.practicum.service.UserActionHandler;
+import ru.practicum.spill.SpillService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Acknowledged actions per second for every {@link Durability} against a real broker, with the old
+ * send-and-flush-per-request path as the baseline. {@code concurrency} is the number of requests in flight,
+ * as gRPC callers would have them.
+ * Usage: {@code java -cp collector-benchmarks.jar ru.practicum.benchmark.DurabilityThroughputReport
+ * [bootstrap] [topic] [messages] [concurrency]}
+ */
+public final class DurabilityThroughputReport {
+
+    public static void main(String[] args) throws Exception {
+        String bootstrap = args.length > 0 ? args[0] : "localhost:9092";
+        String topic = args.length > 1 ? args[1] : "stats.user-actions.benchmark";
+        int messages = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        UserActionProto[] actions = actions(4096);
+        KafkaSettingsConfig kafkaSettings = new KafkaSettingsConfig(bootstrap, topic);
+
+        System.out.printf("%-16s %12s %12s%n", "mode", "acked/s", "delivered/s");
+        report("flush-per-request", flushPerRequest(kafkaSettings, actions, messages, concurrency), messages);
+        for (Durability durability : Durability.values()) {
+            report(durability.name().toLowerCase(), run(kafkaSettings, durability, actions, messages, concurrency),
+                    messages);
+        }
+    }
+
+    private static long[] run(KafkaSettingsConfig kafkaSettings, Durability durability, UserActionProto[] actions,
+                              int messages, int concurrency) throws Exception {
+        CollectorSettingsConfig settings = new CollectorSettingsConfig();
+        settings.setDefaultDurability(durability);
+        settings.setBestEffortQueueCapacity(Math.max(settings.getBestEffortQueueCapacity(), messages));
+        ProducerConfig producers = new ProducerConfig(kafkaSettings, settings);
+        Producer<String, SpecificRecordBase> synced = producers.producer();
+        Producer<String, SpecificRecordBase> leaderAcked = producers.leaderAckProducer();
+        Producer<String, SpecificRecordBase> bestEffort = producers.bestEffortProducer();
+        BestEffortLane lane = new BestEffortLane(bestEffort, settings);
+        lane.start();
+        try {
+            UserActionHandler handler = new UserActionHandler(kafkaSettings, settings, synced, leaderAcked, lane,
+                    new DuplicateActionFilter(settings, new SimpleMeterRegistry()),
+                    new SpillService(kafkaSettings, settings, synced, leaderAcked, new SimpleMeterRegistry()));
+            warmUp(handler, actions);
+
+            Semaphore inFlight = new Semaphore(concurrency);
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                inFlight.acquire();
+                handler.handle(actions[i & (actions.length - 1)]).whenComplete((ignored, e) -> inFlight.release());
+            }
+            inFlight.acquire(concurrency);
+            long acked = System.nanoTime() - start;
+            lane.shutdown();
+            synced.flush();
+            leaderAcked.flush();
+            if (lane.getShedCount() > 0) {
+                System.out.printf("%s: %d actions shed by the best-effort lane%n", durability, lane.getShedCount());
+            }
+            return new long[]{acked, System.nanoTime() - start};
+        } finally {
+            synced.close();
+            leaderAcked.close();
+            bestEffort.close();
+        }
+    }
+
+    private static long[] flushPerRequest(KafkaSettingsConfig kafkaSettings, UserActionProto[] actions,
+                                          int messages, int concurrency) throws InterruptedException {
+        CollectorSettingsConfig settings = new CollectorSettingsConfig();
+        settings.setLinger(Duration.ZERO);
+        settings.setCompressionType("none");
+        ExecutorService callers = Executors.newFixedThreadPool(concurrency);
+        try (Producer<String, SpecificRecordBase> producer = new ProducerConfig(kafkaSettings, settings).producer()) {
+            AtomicLong next = new AtomicLong();
+            long start = System.nanoTime();
+            for (int t = 0; t < concurrency; t++) {
+                callers.execute(() -> {
+                    for (long i = next.getAndIncrement(); i < messages; i = next.getAndIncrement()) {
+                        UserActionProto action = actions[(int) (i & (actions.length - 1))];
+                        producer.send(new ProducerRecord<>(kafkaSettings.getTopic(),
+                                String.valueOf(action.getUserId()), UserActionMapper.mapToAvro(action)));
+                        producer.flush();
+                    }
+                });
+            }
+            callers.shutdown();
+            callers.awaitTermination(1, TimeUnit.HOURS);
+            long elapsed = System.nanoTime() - start;
+            return new long[]{elapsed, elapsed};
+        }
+    }
+
+    private static void warmUp(UserActionHandler handler, UserActionProto[] actions) {
+        for (UserActionProto action : actions) {
+            handler.handle(action).join();
+        }
+    }
+
+    private static void report(String mode, long[] nanos, int messages) {
+        System.out.printf("%-16s %12.0f %12.0f%n", mode,
+                messages / (nanos[0] / 1e9), messages / (nanos[1] / 1e9));
+    }
+
+    private static UserActionProto[] actions(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        ActionTypeProto[] types = {ActionTypeProto.ACTION_VIEW, ActionTypeProto.ACTION_REGISTER, ActionTypeProto.ACTION_LIKE};
+        UserActionProto[] actions = new UserActionProto[count];
+        long now = Instant.now().getEpochSecond();
+        for (int i = 0; i < count; i++) {
+            actions[i] = UserActionProto.newBuilder()
+                    .setUserId(random.nextLong(1, 1_000_000))
+                    .setEventId(random.nextLong(1, 100_000))
+                    .setActionType(types[random.nextInt(types.length)])
+                    .setTimestamp(Timestamp.newBuilder().setSeconds(now - random.nextInt(86_400)))
+                    .build();
+        }
+        return actions;
+    }
+}
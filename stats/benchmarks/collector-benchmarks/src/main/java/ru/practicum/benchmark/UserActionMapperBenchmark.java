@@ -0,0 +1,57 @@
+package ru.practicum.benchmark;
+
+import com.google.protobuf.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+import ru.practicum.ewm.stats.proto.ActionTypeProto;
+import ru.practicum.ewm.stats.proto.UserActionProto;
+import ru.practicum.mapper.UserActionMapper;
+
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class UserActionMapperBenchmark {
+
+    private static final int ACTIONS = 1024;
+
+    private final UserActionProto[] actions = new UserActionProto[ACTIONS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        ActionTypeProto[] types = {ActionTypeProto.ACTION_VIEW, ActionTypeProto.ACTION_REGISTER, ActionTypeProto.ACTION_LIKE};
+        Instant now = Instant.now();
+        for (int i = 0; i < ACTIONS; i++) {
+            actions[i] = UserActionProto.newBuilder()
+                    .setUserId(random.nextLong(1, 1_000_000))
+                    .setEventId(random.nextLong(1, 100_000))
+                    .setActionType(types[random.nextInt(types.length)])
+                    .setTimestamp(Timestamp.newBuilder()
+                            .setSeconds(now.getEpochSecond() - random.nextInt(86_400))
+                            .setNanos(random.nextInt(1_000_000_000)))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public UserActionAvro mapToAvro() {
+        return UserActionMapper.mapToAvro(actions[next++ & (ACTIONS - 1)]);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.practicum.ewm.stats.proto.ActionTypeProto;
+import ru.practicum.service.Durability;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties(prefix = "collector.settings")
+public class CollectorSettingsConfig {
+    // actions of a client stream handed to Kafka together and acknowledged as one unit
+    private int streamBatchSize = 500;
+    // batches of a client stream awaiting their Kafka acknowledgement; the client is paused once this many are out
+    private int streamMaxInFlightBatches = 4;
+    private Map<ActionTypeProto, Durability> durability = new EnumMap<>(ActionTypeProto.class);
+    private Durability defaultDurability = Durability.FULLY_SYNCED;
+    private Duration linger = Duration.ofMillis(5);
+    // how long a send may wait for buffer space or metadata, and for delivery, before the action is spilled
+    private Duration producerMaxBlock = Duration.ofSeconds(60);
+    private Duration deliveryTimeout = Duration.ofMinutes(2);
+    private int batchSize = 64 * 1024;
+    private String compressionType = "lz4";
+    // fire-and-forget actions go through a bounded queue and a producer of their own, tuned for throughput
+    private int bestEffortQueueCapacity = 100_000;
+    private Duration bestEffortLinger = Duration.ofMillis(50);
+    private int bestEffortBatchSize = 256 * 1024;
+    // repeats of (user, event, action) within this window are dropped before Kafka, null disables
+    private Duration dedupWindow;
+    private int dedupMaxEntries = 1_000_000;
+    // local log for durable actions Kafka can't take right now, null disables spilling
+    private String spillPath;
+    private int spillSegmentSize = 64 * 1024 * 1024;
+    private long spillMaxBytes = 1024L * 1024 * 1024;
+
+    public Durability durabilityOf(ActionTypeProto actionType) {
+        return durability.getOrDefault(actionType, defaultDurability);
+    }
+}
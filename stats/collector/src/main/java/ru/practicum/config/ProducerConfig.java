@@ -9,6 +9,7 @@ import org.apache.kafka.clients.producer.Producer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.Properties;
 
 @Configuration
@@ -17,9 +18,39 @@ import java.util.Properties;
 public class ProducerConfig {
 
     KafkaSettingsConfig kafkaSettingsConfig;
+    CollectorSettingsConfig collectorSettingsConfig;
 
+    // fully synced actions: acks=all with idempotence, the client default
     @Bean
     public Producer<String, SpecificRecordBase> producer() {
+        Properties config = baseProperties(collectorSettingsConfig.getLinger(), collectorSettingsConfig.getBatchSize());
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.ACKS_CONFIG, "all");
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+
+        return new KafkaProducer<>(config);
+    }
+
+    @Bean
+    public Producer<String, SpecificRecordBase> leaderAckProducer() {
+        Properties config = baseProperties(collectorSettingsConfig.getLinger(), collectorSettingsConfig.getBatchSize());
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.ACKS_CONFIG, "1");
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+
+        return new KafkaProducer<>(config);
+    }
+
+    // fire-and-forget actions: larger batches and linger, nobody waits on them
+    @Bean
+    public Producer<String, SpecificRecordBase> bestEffortProducer() {
+        Properties config = baseProperties(collectorSettingsConfig.getBestEffortLinger(),
+                collectorSettingsConfig.getBestEffortBatchSize());
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.ACKS_CONFIG, "1");
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+
+        return new KafkaProducer<>(config);
+    }
+
+    private Properties baseProperties(Duration linger, int batchSize) {
         Properties config = new Properties();
         config.put(org.apache.kafka.clients.producer.ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,
                 kafkaSettingsConfig.getUrl());
@@ -27,7 +58,18 @@ public class ProducerConfig {
                 "org.apache.kafka.common.serialization.StringSerializer");
         config.put(org.apache.kafka.clients.producer.ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
                 "ru.practicum.serialization.AvroSerializer");
-
-        return new KafkaProducer<>(config);
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.LINGER_MS_CONFIG,
+                (int) linger.toMillis());
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.COMPRESSION_TYPE_CONFIG,
+                collectorSettingsConfig.getCompressionType());
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.MAX_BLOCK_MS_CONFIG,
+                collectorSettingsConfig.getProducerMaxBlock().toMillis());
+        int deliveryTimeout = (int) collectorSettingsConfig.getDeliveryTimeout().toMillis();
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliveryTimeout);
+        // the client requires delivery.timeout.ms >= linger.ms + request.timeout.ms
+        config.put(org.apache.kafka.clients.producer.ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG,
+                Math.min(30_000, Math.max(1, deliveryTimeout - (int) linger.toMillis()) / 2));
+        return config;
     }
-}
\ No newline at end of file
+}
@@ -3,44 +3,186 @@ package ru.practicum.controller;
 import com.google.protobuf.Empty;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
 
+import ru.practicum.config.CollectorSettingsConfig;
+import ru.practicum.ewm.stats.proto.UserActionBatchProto;
 import ru.practicum.ewm.stats.proto.UserActionControllerGrpc;
 import ru.practicum.ewm.stats.proto.UserActionProto;
 import ru.practicum.service.UserActionHandler;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Slf4j
 @GrpcService
 @RequiredArgsConstructor(access = AccessLevel.PUBLIC)
 public class UserActionController extends UserActionControllerGrpc.UserActionControllerImplBase {
 
     private final UserActionHandler handler;
+    private final CollectorSettingsConfig settingsConfig;
 
     @Override
     public void collectUserAction(UserActionProto request, StreamObserver<Empty> responseObserver) {
-        try {
-            log.info("Получен gRPC запрос: userId={}, eventId={}, action={}",
-                    request.getUserId(), request.getEventId(), request.getActionType());
+        log.info("Получен gRPC запрос: userId={}, eventId={}, action={}",
+                request.getUserId(), request.getEventId(), request.getActionType());
 
-            handler.handle(request);
+        handler.handle(request).whenComplete((ignored, e) -> {
+            if (e == null) {
+                log.debug("gRPC запрос успешно обработан: userId={}, eventId={}",
+                        request.getUserId(), request.getEventId());
+            } else {
+                log.error("Ошибка обработки gRPC запроса: userId={}, eventId={}",
+                        request.getUserId(), request.getEventId(), e);
+            }
+            acknowledge(responseObserver, e);
+        });
+    }
 
-            responseObserver.onNext(Empty.getDefaultInstance());
-            responseObserver.onCompleted();
+    @Override
+    public void collectUserActionBatch(UserActionBatchProto request, StreamObserver<Empty> responseObserver) {
+        log.info("Получен gRPC пакет: {} событий", request.getActionsCount());
 
-            log.debug("gRPC запрос успешно обработан: userId={}, eventId={}",
-                    request.getUserId(), request.getEventId());
+        handler.handleBatch(request.getActionsList()).whenComplete((ignored, e) -> {
+            if (e != null) {
+                log.error("Ошибка обработки gRPC пакета: {} событий", request.getActionsCount(), e);
+            }
+            acknowledge(responseObserver, e);
+        });
+    }
 
-        } catch (Exception e) {
-            log.error("Ошибка обработки gRPC запроса: userId={}, eventId={}",
-                    request.getUserId(), request.getEventId(), e);
+    @Override
+    public StreamObserver<UserActionProto> collectUserActions(StreamObserver<Empty> responseObserver) {
+        ServerCallStreamObserver<Empty> call = (ServerCallStreamObserver<Empty>) responseObserver;
+        // messages are requested by hand, so a slow Kafka slows the client down instead of piling up batches here
+        call.disableAutoRequest();
+        UserActionStreamObserver observer = new UserActionStreamObserver(call,
+                Math.max(1, settingsConfig.getStreamBatchSize()),
+                Math.max(1, settingsConfig.getStreamMaxInFlightBatches()));
+        observer.start();
+        return observer;
+    }
+
+    // completes the call from whichever thread finished the send: the gRPC one or the producer I/O thread
+    private static void acknowledge(StreamObserver<Empty> responseObserver, Throwable error) {
+        if (error == null) {
+            responseObserver.onNext(Empty.getDefaultInstance());
+            responseObserver.onCompleted();
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
             responseObserver.onError(
                     new StatusRuntimeException(
-                            Status.INTERNAL.withDescription(e.getLocalizedMessage()).withCause(e))
+                            Status.INTERNAL.withDescription(cause.getLocalizedMessage()).withCause(cause))
             );
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Hands a client stream to Kafka in batches of {@code batchSize}. At most {@code maxInFlightBatches} batches
+     * are requested ahead of their acknowledgements, the next batch is only requested from the client when one
+     * of them is acknowledged. The single response is sent once the client half-closes and every batch is
+     * acknowledged at its configured durability, or as an error as soon as any batch fails.
+     * <p>
+     * Calls from gRPC are serialized, acknowledgements arrive on producer threads; {@code finished} makes sure
+     * exactly one of them completes the call.
+     */
+    private class UserActionStreamObserver implements StreamObserver<UserActionProto> {
+
+        private final ServerCallStreamObserver<Empty> responseObserver;
+        private final int batchSize;
+        private final int maxInFlightBatches;
+        private final List<UserActionProto> batch;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile boolean halfClosed;
+        private long received;
+
+        UserActionStreamObserver(ServerCallStreamObserver<Empty> responseObserver, int batchSize,
+                                 int maxInFlightBatches) {
+            this.responseObserver = responseObserver;
+            this.batchSize = batchSize;
+            this.maxInFlightBatches = maxInFlightBatches;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        void start() {
+            responseObserver.request(batchSize * maxInFlightBatches);
+        }
+
+        @Override
+        public void onNext(UserActionProto action) {
+            // messages requested before a failure still arrive, there is nobody to hand them to any more
+            if (finished.get()) {
+                return;
+            }
+            batch.add(action);
+            received++;
+            if (batch.size() >= batchSize) {
+                sendBatch();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            finished.set(true);
+            log.warn("Поток событий прерван клиентом после {} событий, не отправлено {}: {}",
+                    received, batch.size(), t.getMessage());
+            batch.clear();
+        }
+
+        @Override
+        public void onCompleted() {
+            if (finished.get()) {
+                return;
+            }
+            if (!batch.isEmpty()) {
+                sendBatch();
+            }
+            halfClosed = true;
+            if (inFlight.get() == 0) {
+                complete();
+            }
+        }
+
+        private void sendBatch() {
+            int size = batch.size();
+            inFlight.incrementAndGet();
+            CompletableFuture<Void> ack = handler.handleBatch(batch);
+            batch.clear();
+            ack.whenComplete((ignored, e) -> {
+                if (e != null) {
+                    fail(e);
+                } else if (inFlight.decrementAndGet() == 0 && halfClosed) {
+                    complete();
+                } else if (!halfClosed && !finished.get()) {
+                    responseObserver.request(size);
+                }
+            });
+        }
+
+        private void complete() {
+            if (finished.compareAndSet(false, true)) {
+                log.info("Поток событий обработан: {} событий", received);
+                acknowledge(responseObserver, null);
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (finished.compareAndSet(false, true)) {
+                log.error("Ошибка обработки потока событий после {} событий", received, error);
+                acknowledge(responseObserver, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package ru.practicum.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.CollectorSettingsConfig;
+import ru.practicum.service.Durability;
+import ru.practicum.ewm.stats.proto.ActionTypeProto;
+import ru.practicum.ewm.stats.proto.UserActionProto;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drops actions whose (userId, eventId, action type) was already accepted within the dedup window. A repeat
+ * can never raise a stored weight, so the aggregator and analyzer would discard it anyway.
+ * <p>
+ * Only fire-and-forget action types (views by default) are filtered. Those are acknowledged before delivery
+ * anyway. A durable action is acknowledged only once Kafka or the spill log has it, so a client retry
+ * that arrives while the first send is still in flight must not be answered as a duplicate.
+ * <p>
+ * Each stripe keeps a ring of {@value #GENERATIONS} sets of 64-bit key hashes, each covering a quarter
+ * of the window. The oldest set is cleared when a new quarter starts, so an action is remembered for
+ * between three quarters of the window and the full window. A set that reaches its share of
+ * {@code dedup-max-entries} starts the next generation early. Under a flood the effective window shrinks,
+ * but memory stays fixed.
+ */
+@Slf4j
+@Component
+public class DuplicateActionFilter {
+
+    private static final int GENERATIONS = 4;
+    private static final int STRIPE_BITS = 6;
+
+    private final boolean enabled;
+    private final long generationNanos;
+    private final Stripe[] stripes;
+    private final Set<ActionTypeProto> filtered = EnumSet.noneOf(ActionTypeProto.class);
+    private final Map<ActionTypeProto, Counter> suppressed = new EnumMap<>(ActionTypeProto.class);
+
+    public DuplicateActionFilter(CollectorSettingsConfig settingsConfig, MeterRegistry meterRegistry) {
+        Duration window = settingsConfig.getDedupWindow();
+        this.enabled = window != null && !window.isZero() && !window.isNegative();
+        this.generationNanos = enabled ? window.toNanos() / GENERATIONS : 0;
+
+        int stripeCount = 1 << STRIPE_BITS;
+        int perGeneration = enabled
+                ? Math.max(16, settingsConfig.getDedupMaxEntries() / (stripeCount * GENERATIONS))
+                : 0;
+        this.stripes = new Stripe[enabled ? stripeCount : 0];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(perGeneration, System.nanoTime());
+        }
+
+        for (ActionTypeProto actionType : ActionTypeProto.values()) {
+            if (actionType != ActionTypeProto.UNRECOGNIZED
+                    && settingsConfig.durabilityOf(actionType) == Durability.FIRE_AND_FORGET) {
+                filtered.add(actionType);
+                suppressed.put(actionType, Counter.builder("collector.actions.suppressed")
+                        .description("Repeated user actions dropped by the collector dedup window")
+                        .tag("action", actionType.name())
+                        .register(meterRegistry));
+            }
+        }
+        Gauge.builder("collector.dedup.entries", this, DuplicateActionFilter::size)
+                .description("Keys remembered by the collector dedup window")
+                .register(meterRegistry);
+
+        if (enabled) {
+            log.info("Дедупликация действий включена для {}: окно {}, до {} ключей", filtered, window,
+                    (long) perGeneration * stripeCount * GENERATIONS);
+        }
+    }
+
+    /**
+     * Records the action and returns true when the same tuple was already accepted within the window.
+     * Always false for durable action types, which are never recorded.
+     */
+    public boolean isDuplicate(UserActionProto action) {
+        if (!enabled || !filtered.contains(action.getActionType())) {
+            return false;
+        }
+        long key = key(action);
+        Stripe stripe = stripes[(int) (key >>> (Long.SIZE - STRIPE_BITS))];
+        boolean duplicate;
+        synchronized (stripe) {
+            duplicate = stripe.seenOrAdd(key, System.nanoTime(), generationNanos);
+        }
+        if (duplicate) {
+            Counter counter = suppressed.get(action.getActionType());
+            if (counter != null) {
+                counter.increment();
+            }
+        }
+        return duplicate;
+    }
+
+    /**
+     * Forgets an accepted action whose delivery failed, so that a retry by the caller is not suppressed.
+     */
+    public void forget(UserActionProto action) {
+        if (!enabled || !filtered.contains(action.getActionType())) {
+            return;
+        }
+        long key = key(action);
+        Stripe stripe = stripes[(int) (key >>> (Long.SIZE - STRIPE_BITS))];
+        synchronized (stripe) {
+            stripe.remove(key);
+        }
+    }
+
+    public double suppressedCount() {
+        return suppressed.values().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private double size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private static long key(UserActionProto action) {
+        long h = mix(action.getUserId());
+        h = mix(h ^ action.getEventId() * 0x9E3779B97F4A7C15L);
+        return mix(h ^ action.getActionTypeValue());
+    }
+
+    // murmur3 fmix64
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Stripe {
+        private final LongHashSet[] generations = new LongHashSet[GENERATIONS];
+        private int current;
+        private long currentStart;
+
+        private Stripe(int perGeneration, long now) {
+            for (int i = 0; i < GENERATIONS; i++) {
+                generations[i] = new LongHashSet(perGeneration);
+            }
+            currentStart = now;
+        }
+
+        private boolean seenOrAdd(long key, long now, long generationNanos) {
+            advance(now, generationNanos);
+            for (LongHashSet generation : generations) {
+                if (generation.contains(key)) {
+                    return true;
+                }
+            }
+            if (generations[current].isFull()) {
+                rotate(now);
+            }
+            generations[current].add(key);
+            return false;
+        }
+
+        private void remove(long key) {
+            for (LongHashSet generation : generations) {
+                generation.remove(key);
+            }
+        }
+
+        private int size() {
+            int size = 0;
+            for (LongHashSet generation : generations) {
+                size += generation.size();
+            }
+            return size;
+        }
+
+        private void advance(long now, long generationNanos) {
+            long elapsed = now - currentStart;
+            if (elapsed < generationNanos) {
+                return;
+            }
+            // after a quiet period longer than the window every generation has expired
+            long steps = Math.min(GENERATIONS, elapsed / generationNanos);
+            for (long i = 0; i < steps; i++) {
+                rotate(now);
+            }
+            currentStart = now - elapsed % generationNanos;
+        }
+
+        private void rotate(long now) {
+            current = (current + 1) % GENERATIONS;
+            generations[current].clear();
+            currentStart = now;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ru.practicum.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity open-addressing set of longs. It is cleared and reused rather than grown, which keeps the
+ * memory of the duplicate filter constant.
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private final long[] keys;
+    private final int mask;
+    private final int maxSize;
+    private boolean containsEmptyKey;
+    private int size;
+
+    LongHashSet(int maxSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxSize) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+        this.maxSize = maxSize;
+    }
+
+    boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmptyKey;
+        }
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == key) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns false when the key was already present.
+     */
+    boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+        int i = index(key);
+        for (long current = keys[i]; current != EMPTY; current = keys[i]) {
+            if (current == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        size++;
+        return true;
+    }
+
+    boolean remove(long key) {
+        if (key == EMPTY) {
+            if (!containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = false;
+            size--;
+            return true;
+        }
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == key) {
+                shiftKeys(i);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    boolean isFull() {
+        return size >= maxSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, EMPTY);
+            containsEmptyKey = false;
+            size = 0;
+        }
+    }
+
+    long sizeInBytes() {
+        return (long) keys.length * Long.BYTES;
+    }
+
+    // backward-shift deletion keeps probe sequences intact without tombstones
+    private void shiftKeys(int pos) {
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            while (true) {
+                current = keys[pos];
+                if (current == EMPTY) {
+                    keys[last] = EMPTY;
+                    return;
+                }
+                int slot = index(current);
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+        }
+    }
+
+    // keys are already well-mixed hashes
+    private int index(long key) {
+        return (int) key & mask;
+    }
+}
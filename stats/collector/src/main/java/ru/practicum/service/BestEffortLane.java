@@ -0,0 +1,121 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.CollectorSettingsConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lane for fire-and-forget actions. Records wait in a bounded queue and a single sender thread hands them
+ * to a dedicated producer tuned for throughput. When the producer falls behind, the queue fills up and new
+ * records are shed instead of competing with durable actions for the gRPC threads and the network.
+ */
+@Slf4j
+@Component
+public class BestEffortLane implements Runnable {
+
+    private static final int DRAIN_BATCH_SIZE = 1024;
+    private static final long SHED_LOG_INTERVAL = 10_000;
+
+    private final Producer<String, SpecificRecordBase> bestEffortProducer;
+    private final BlockingQueue<ProducerRecord<String, SpecificRecordBase>> queue;
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running = true;
+    private Thread sender;
+
+    public BestEffortLane(Producer<String, SpecificRecordBase> bestEffortProducer,
+                          CollectorSettingsConfig settingsConfig) {
+        this.bestEffortProducer = bestEffortProducer;
+        this.queue = new ArrayBlockingQueue<>(settingsConfig.getBestEffortQueueCapacity());
+    }
+
+    /**
+     * Returns false when the record was shed.
+     */
+    public boolean offer(ProducerRecord<String, SpecificRecordBase> record) {
+        if (running && queue.offer(record)) {
+            return true;
+        }
+        long total = shed.incrementAndGet();
+        if (total % SHED_LOG_INTERVAL == 1) {
+            log.warn("Очередь best-effort переполнена, отброшено событий: {}", total);
+        }
+        return false;
+    }
+
+    public long getShedCount() {
+        return shed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public void run() {
+        List<ProducerRecord<String, SpecificRecordBase>> batch = new ArrayList<>(DRAIN_BATCH_SIZE);
+        try {
+            while (running || !queue.isEmpty()) {
+                ProducerRecord<String, SpecificRecordBase> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, DRAIN_BATCH_SIZE - 1);
+                for (ProducerRecord<String, SpecificRecordBase> record : batch) {
+                    send(record);
+                }
+                batch.clear();
+            }
+            bestEffortProducer.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Ошибка отправителя best-effort: {}", e.getMessage(), e);
+        } finally {
+            log.info("Отправитель best-effort остановлен: отброшено {}, ошибок отправки {}, потеряно в очереди {}",
+                    shed.get(), failed.get(), queue.size());
+        }
+    }
+
+    // a record the producer refuses outright is counted like one that fails later, the sender keeps going
+    private void send(ProducerRecord<String, SpecificRecordBase> record) {
+        try {
+            bestEffortProducer.send(record, (metadata, exception) -> {
+                if (exception != null) {
+                    failed.incrementAndGet();
+                    log.debug("Ошибка отправки best-effort события: {}", exception.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            log.warn("Best-effort событие отклонено продюсером: {}", e.getMessage());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        sender = new Thread(this);
+        sender.setName("collector-best-effort-sender");
+        sender.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+    }
+}
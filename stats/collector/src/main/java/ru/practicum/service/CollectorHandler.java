@@ -1,5 +1,10 @@
 package ru.practicum.service;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface CollectorHandler<T> {
-    void handle(T proto);
+    CompletableFuture<Void> handle(T proto);
+
+    CompletableFuture<Void> handleBatch(List<T> protos);
 }
@@ -0,0 +1,13 @@
+package ru.practicum.service;
+
+/**
+ * When the collector acknowledges an action to its caller.
+ */
+public enum Durability {
+    // acknowledged once queued on the best-effort lane, shed when that lane is saturated
+    FIRE_AND_FORGET,
+    // acknowledged when the partition leader has written the record (acks=1)
+    LEADER_ACKED,
+    // acknowledged when all in-sync replicas have the record (acks=all, idempotent producer)
+    FULLY_SYNCED
+}
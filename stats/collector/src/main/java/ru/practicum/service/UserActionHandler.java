@@ -6,35 +6,143 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RetriableException;
 import org.springframework.stereotype.Service;
+import ru.practicum.config.CollectorSettingsConfig;
 import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.dedup.DuplicateActionFilter;
 
 import ru.practicum.ewm.stats.proto.UserActionProto;
 import ru.practicum.mapper.UserActionMapper;
+import ru.practicum.spill.SpillService;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends actions without flushing, so linger and compression batch them across requests. The returned
+ * future completes according to the {@link Durability} configured for the action type. Fire-and-forget
+ * actions take the {@link BestEffortLane}, the others go straight to a producer of their own. A durable action
+ * that Kafka rejects with a retriable error is written to the {@link SpillService} and acknowledged from there.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor(access = AccessLevel.PUBLIC)
 public class UserActionHandler implements CollectorHandler<UserActionProto> {
 
     private final KafkaSettingsConfig kafkaSettingsConfig;
+    private final CollectorSettingsConfig collectorSettingsConfig;
     private final Producer<String, SpecificRecordBase> producer;
+    private final Producer<String, SpecificRecordBase> leaderAckProducer;
+    private final BestEffortLane bestEffortLane;
+    private final DuplicateActionFilter duplicateFilter;
+    private final SpillService spillService;
 
-    public void handle(UserActionProto proto) {
+    public CompletableFuture<Void> handle(UserActionProto proto) {
+        if (duplicateFilter.isDuplicate(proto)) {
+            return CompletableFuture.completedFuture(null);
+        }
         try {
-            SpecificRecordBase avroRecord = UserActionMapper.mapToAvro(proto);
-            ProducerRecord<String, SpecificRecordBase> record =
-                    new ProducerRecord<>(kafkaSettingsConfig.getTopic(), avroRecord);
+            return send(proto, toRecord(proto));
+        } catch (Exception e) {
+            duplicateFilter.forget(proto);
+            log.error("Ошибка отправки в Kafka: userId={}, eventId={}",
+                    proto.getUserId(), proto.getEventId(), e);
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to send user action to Kafka", e));
+        }
+    }
+
+    public CompletableFuture<Void> handleBatch(List<UserActionProto> protos) {
+        List<UserActionProto> accepted = protos.stream()
+                .filter(proto -> !duplicateFilter.isDuplicate(proto))
+                .toList();
+        if (accepted.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            // mapped up front, so a malformed action rejects the batch before any of it reaches Kafka
+            List<ProducerRecord<String, SpecificRecordBase>> records = accepted.stream()
+                    .map(this::toRecord)
+                    .toList();
+            CompletableFuture<?>[] acks = new CompletableFuture<?>[records.size()];
+            for (int i = 0; i < acks.length; i++) {
+                acks[i] = send(accepted.get(i), records.get(i));
+            }
+            return CompletableFuture.allOf(acks);
+        } catch (Exception e) {
+            accepted.forEach(duplicateFilter::forget);
+            log.error("Ошибка отправки пакета в Kafka: {} шт.", protos.size(), e);
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to send user action batch to Kafka", e));
+        }
+    }
 
-            producer.send(record);
-            producer.flush();
+    private CompletableFuture<Void> send(UserActionProto proto, ProducerRecord<String, SpecificRecordBase> record) {
+        Durability durability = collectorSettingsConfig.durabilityOf(proto.getActionType());
+        if (durability == Durability.FIRE_AND_FORGET) {
+            if (!bestEffortLane.offer(record)) {
+                duplicateFilter.forget(proto);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!spillService.beginDirectSend()) {
+            // the backlog is still being replayed: keep to the log, without blocking the request thread on it
+            return spillService.spillAsync(proto, durability)
+                    .thenCompose(spilled -> spillOutcome(spilled, proto, null));
+        }
+        Producer<String, SpecificRecordBase> target = durability == Durability.FULLY_SYNCED
+                ? producer
+                : leaderAckProducer;
 
+        CompletableFuture<Void> acked = new CompletableFuture<>();
+        try {
+            target.send(record, (metadata, exception) -> onSent(proto, durability, exception, acked));
+        } catch (RuntimeException e) {
+            spillService.endDirectSend();
+            throw e;
+        }
+        return acked;
+    }
+
+    private void onSent(UserActionProto proto, Durability durability, Exception exception,
+                        CompletableFuture<Void> acked) {
+        if (exception == null) {
+            spillService.endDirectSend();
             log.debug("Событие успешно отправлено в Kafka: userId={}, eventId={}",
                     proto.getUserId(), proto.getEventId());
-        } catch (Exception e) {
+            acked.complete(null);
+        } else if (exception instanceof RetriableException) {
+            // buffer full, no metadata or delivery timed out: the broker is slow or away. The callback runs
+            // on the producer's I/O thread, so the append and its fsync are left to the spill writer
+            spillService.spillFailedSendAsync(proto, durability)
+                    .thenCompose(spilled -> spillOutcome(spilled, proto, exception))
+                    .whenComplete((ignored, e) -> {
+                        if (e == null) {
+                            acked.complete(null);
+                        } else {
+                            acked.completeExceptionally(e);
+                        }
+                    });
+        } else {
+            spillService.endDirectSend();
             log.error("Ошибка отправки в Kafka: userId={}, eventId={}",
-                    proto.getUserId(), proto.getEventId(), e);
-            throw new RuntimeException("Failed to send user action to Kafka", e);
+                    proto.getUserId(), proto.getEventId(), exception);
+            acked.completeExceptionally(exception);
+        }
+    }
+
+    private CompletableFuture<Void> spillOutcome(boolean spilled, UserActionProto proto, Exception cause) {
+        if (spilled) {
+            return CompletableFuture.completedFuture(null);
         }
+        log.error("Ошибка отправки в Kafka: userId={}, eventId={}", proto.getUserId(), proto.getEventId(), cause);
+        return CompletableFuture.failedFuture(cause != null
+                ? cause
+                : new IllegalStateException("Kafka backlog is being replayed and the spill log can't take more"));
+    }
+
+    private ProducerRecord<String, SpecificRecordBase> toRecord(UserActionProto proto) {
+        SpecificRecordBase avroRecord = UserActionMapper.mapToAvro(proto);
+        return new ProducerRecord<>(kafkaSettingsConfig.getTopic(), String.valueOf(proto.getUserId()), avroRecord);
     }
 }
@@ -0,0 +1,298 @@
+package ru.practicum.spill;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of memory-mapped segment files. An entry is {@code [int length][int crc32c][payload]}; a zero
+ * length marks the unwritten tail of a segment. The read cursor is kept in a checkpoint file that is replaced
+ * atomically, and segments behind it are deleted. After a crash the log is replayed from the last
+ * checkpoint, so delivery is at-least-once. A torn entry at the tail fails its checksum and ends the log.
+ */
+final class SpillLog implements Closeable {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "spill-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT = "spill.checkpoint";
+    private static final int CHECKPOINT_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxBytes;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final CRC32C crc = new CRC32C();
+
+    private Segment readSegment;
+    private int readPosition;
+    private long backlogEntries;
+    private long backlogBytes;
+
+    SpillLog(Path directory, int segmentSize, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        open();
+    }
+
+    /**
+     * Returns false when the log has reached its size limit.
+     */
+    synchronized boolean append(byte[] payload, boolean force) throws IOException {
+        int entrySize = HEADER_SIZE + payload.length;
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.buffer.capacity() - tail.writePosition < entrySize) {
+            int size = Math.max(segmentSize, entrySize + Integer.BYTES);
+            if (sizeOnDisk() + size > maxBytes) {
+                return false;
+            }
+            tail = createSegment(tail == null ? 1 : tail.id + 1, size);
+            if (readSegment == null) {
+                readSegment = tail;
+                readPosition = 0;
+            }
+        }
+        crc.reset();
+        crc.update(payload);
+        ByteBuffer buffer = tail.buffer;
+        int position = tail.writePosition;
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.put(position + HEADER_SIZE, payload);
+        // the length goes last: a reader never sees a length without its payload
+        buffer.putInt(position, payload.length);
+        if (force) {
+            tail.buffer.force(position, entrySize);
+        }
+        tail.writePosition += entrySize;
+        backlogEntries++;
+        backlogBytes += entrySize;
+        return true;
+    }
+
+    /**
+     * Reads up to {@code max} entries from the read cursor without moving it.
+     */
+    synchronized Batch read(int max) {
+        List<byte[]> payloads = new ArrayList<>();
+        Segment segment = readSegment;
+        int position = readPosition;
+        long bytes = 0;
+        while (segment != null && payloads.size() < max) {
+            int length = position + HEADER_SIZE <= segment.writePosition ? segment.buffer.getInt(position) : 0;
+            if (length == 0) {
+                Segment next = next(segment);
+                if (next == null) {
+                    break;
+                }
+                segment = next;
+                position = 0;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            segment.buffer.get(position + HEADER_SIZE, payload);
+            payloads.add(payload);
+            position += HEADER_SIZE + length;
+            bytes += HEADER_SIZE + length;
+        }
+        return new Batch(payloads, segment, position, bytes);
+    }
+
+    /**
+     * Moves the read cursor past a batch returned by {@link #read(int)} and deletes fully drained segments.
+     */
+    synchronized void commit(Batch batch) throws IOException {
+        readSegment = batch.segment;
+        readPosition = batch.position;
+        backlogEntries -= batch.payloads.size();
+        backlogBytes -= batch.bytes;
+        writeCheckpoint();
+        while (!segments.isEmpty() && segments.peekFirst() != readSegment) {
+            Segment drained = segments.pollFirst();
+            drained.channel.close();
+            Files.deleteIfExists(drained.path);
+        }
+    }
+
+    synchronized long backlogEntries() {
+        return backlogEntries;
+    }
+
+    synchronized long backlogBytes() {
+        return backlogBytes;
+    }
+
+    synchronized long sizeOnDisk() {
+        return segments.stream().mapToLong(segment -> segment.buffer.capacity()).sum();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        segments.clear();
+    }
+
+    private Segment next(Segment segment) {
+        boolean found = false;
+        for (Segment candidate : segments) {
+            if (found) {
+                return candidate;
+            }
+            found = candidate == segment;
+        }
+        return null;
+    }
+
+    private void open() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = mapSegment(id, path, (int) Files.size(path));
+            segment.writePosition = recoverWritePosition(segment);
+            segments.addLast(segment);
+        }
+
+        readSegment = segments.peekFirst();
+        readPosition = 0;
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        // a checkpoint cut short by a crash is ignored: replaying from the first segment only repeats entries
+        if (Files.exists(checkpoint) && Files.size(checkpoint) >= CHECKPOINT_SIZE) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpoint))) {
+                long id = in.readLong();
+                int position = in.readInt();
+                for (Segment segment : segments) {
+                    if (segment.id == id) {
+                        readSegment = segment;
+                        readPosition = position;
+                    }
+                }
+            }
+        }
+
+        countBacklog();
+    }
+
+    // walks the entry headers from the read cursor, payloads stay on disk
+    private void countBacklog() {
+        Segment segment = readSegment;
+        int position = readPosition;
+        while (segment != null) {
+            int length = position + HEADER_SIZE <= segment.writePosition ? segment.buffer.getInt(position) : 0;
+            if (length == 0) {
+                segment = next(segment);
+                position = 0;
+                continue;
+            }
+            backlogEntries++;
+            backlogBytes += HEADER_SIZE + length;
+            position += HEADER_SIZE + length;
+        }
+    }
+
+    // the first entry that is empty or fails its checksum is where appending resumes
+    private int recoverWritePosition(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_SIZE, payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+        }
+        // wipe a torn entry so it can't be mistaken for data once the slot is reused
+        if (position + Integer.BYTES <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+        return position;
+    }
+
+    private Segment createSegment(long id, int size) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = mapSegment(id, path, size);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private Segment mapSegment(long id, Path path, int size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    // the tmp file is synced before the rename and the directory after it, so a crash leaves either checkpoint whole
+    private void writeCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        Path tmp = directory.resolve(CHECKPOINT + ".tmp");
+        ByteBuffer content = ByteBuffer.allocate(CHECKPOINT_SIZE)
+                .putLong(readSegment == null ? 0 : readSegment.id)
+                .putInt(readPosition)
+                .flip();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // some platforms can't open a directory for syncing; the rename is still atomic there
+        }
+    }
+
+    record Batch(List<byte[]> payloads, Segment segment, int position, long bytes) {
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
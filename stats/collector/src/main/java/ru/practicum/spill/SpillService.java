@@ -0,0 +1,371 @@
+package ru.practicum.spill;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.stereotype.Component;
+import ru.practicum.config.CollectorSettingsConfig;
+import ru.practicum.config.KafkaSettingsConfig;
+import ru.practicum.ewm.stats.proto.UserActionProto;
+import ru.practicum.mapper.UserActionMapper;
+import ru.practicum.service.Durability;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps durable actions when Kafka can't take them. The handler appends an action here instead of failing
+ * the call; from then on every durable action is appended too, so nothing overtakes the backlog. A drainer
+ * thread replays the log in order and switches the handler back to direct sends once it has caught up.
+ * <p>
+ * Direct sends issued before the switch may still fail and be appended afterwards. Actions accepted while
+ * spilling are therefore held back until every such send is either acknowledged or in the log, and the drainer
+ * only switches back once no direct send and no append is outstanding. The log thus keeps the order in which
+ * actions were accepted, except among direct sends that were in flight together when Kafka went away.
+ */
+@Slf4j
+@Component
+public class SpillService implements Runnable {
+
+    private static final int DRAIN_BATCH_SIZE = 500;
+    private static final long RETRY_BACKOFF_MS = 1_000;
+    // the first byte of an entry; stored in spill files, so a code is never reused for another level
+    private static final byte LEADER_ACKED_CODE = 1;
+    private static final byte FULLY_SYNCED_CODE = 2;
+
+    private final KafkaSettingsConfig kafkaSettingsConfig;
+    private final CollectorSettingsConfig collectorSettingsConfig;
+    private final Producer<String, SpecificRecordBase> producer;
+    private final Producer<String, SpecificRecordBase> leaderAckProducer;
+    private final SpillLog spillLog;
+    private final Counter spilled;
+    private final Object lock = new Object();
+    private final ExecutorService writer;
+    // direct sends not yet acknowledged or, after a retriable failure, not yet in the log
+    private final AtomicInteger directSends = new AtomicInteger();
+    // actions accepted while spilling that are not in the log yet, held ones included
+    private final AtomicInteger queuedAppends = new AtomicInteger();
+    // actions accepted while direct sends from before the switch were unsettled, in order; guarded by itself
+    private final Queue<HeldAppend> held = new ArrayDeque<>();
+
+    private volatile boolean spilling;
+    private volatile boolean running = true;
+    private Thread drainer;
+
+    public SpillService(KafkaSettingsConfig kafkaSettingsConfig,
+                        CollectorSettingsConfig collectorSettingsConfig,
+                        Producer<String, SpecificRecordBase> producer,
+                        Producer<String, SpecificRecordBase> leaderAckProducer,
+                        MeterRegistry meterRegistry) throws IOException {
+        this.kafkaSettingsConfig = kafkaSettingsConfig;
+        this.collectorSettingsConfig = collectorSettingsConfig;
+        this.producer = producer;
+        this.leaderAckProducer = leaderAckProducer;
+
+        String spillPath = collectorSettingsConfig.getSpillPath();
+        this.spillLog = spillPath == null || spillPath.isBlank()
+                ? null
+                : new SpillLog(Path.of(spillPath), collectorSettingsConfig.getSpillSegmentSize(),
+                collectorSettingsConfig.getSpillMaxBytes());
+        this.spilling = spillLog != null && spillLog.backlogEntries() > 0;
+        this.writer = spillLog == null ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "collector-spill-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.spilled = Counter.builder("collector.spill.appended")
+                .description("User actions written to the local spill log")
+                .register(meterRegistry);
+        Gauge.builder("collector.spill.backlog", this, service -> service.spillLog == null ? 0 : service.spillLog.backlogEntries())
+                .description("Spilled user actions not yet replayed to Kafka")
+                .register(meterRegistry);
+        Gauge.builder("collector.spill.bytes", this, service -> service.spillLog == null ? 0 : service.spillLog.sizeOnDisk())
+                .description("Size of the spill log segments on disk")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        if (spilling) {
+            log.warn("Найден неотправленный spill-лог: {} событий, {} байт",
+                    spillLog.backlogEntries(), spillLog.backlogBytes());
+        }
+    }
+
+    /**
+     * Registers a direct send to Kafka, to be settled with {@link #endDirectSend} or
+     * {@link #spillFailedSendAsync}. Returns false while spilling, in which case the action has to go to
+     * {@link #spillAsync} instead.
+     */
+    public boolean beginDirectSend() {
+        if (spillLog == null) {
+            return true;
+        }
+        directSends.incrementAndGet();
+        if (spilling) {
+            // the append is counted before the send is released, so the drainer can't switch back in between
+            queuedAppends.incrementAndGet();
+            endDirectSend();
+            return false;
+        }
+        return true;
+    }
+
+    public void endDirectSend() {
+        if (spillLog == null) {
+            return;
+        }
+        if (directSends.decrementAndGet() == 0) {
+            synchronized (held) {
+                if (!held.isEmpty()) {
+                    submit(this::appendHeld);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the action to the spill log. Returns false when spilling is disabled or the log is full,
+     * in which case the caller has to fail the action.
+     */
+    private boolean spill(UserActionProto proto, Durability durability) {
+        if (spillLog == null) {
+            return false;
+        }
+        byte[] message = proto.toByteArray();
+        byte[] payload = new byte[message.length + 1];
+        payload[0] = durabilityCode(durability);
+        System.arraycopy(message, 0, payload, 1, message.length);
+        try {
+            synchronized (lock) {
+                if (!spillLog.append(payload, durability == Durability.FULLY_SYNCED)) {
+                    log.error("Spill-лог заполнен, событие отклонено: userId={}, eventId={}",
+                            proto.getUserId(), proto.getEventId());
+                    return false;
+                }
+                spilling = true;
+            }
+            spilled.increment();
+            return true;
+        } catch (IOException e) {
+            log.error("Ошибка записи в spill-лог: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Appends an action accepted while spilling. It goes to the log on the spill writer thread, so that no
+     * caller blocks on the disk: a fully synced append waits for it. While direct sends from before the switch
+     * are unsettled, the action is held back, so that their retries land in the log ahead of it.
+     * Only called after {@link #beginDirectSend} returned false, which already counted the append.
+     */
+    public CompletableFuture<Boolean> spillAsync(UserActionProto proto, Durability durability) {
+        if (spillLog == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        HeldAppend append = new HeldAppend(proto, durability, new CompletableFuture<>());
+        synchronized (held) {
+            // held ones are still waiting for their release, nothing accepted later may pass them
+            if (directSends.get() > 0 || !held.isEmpty()) {
+                held.add(append);
+                return append.spilled();
+            }
+        }
+        if (!submit(() -> append(append))) {
+            queuedAppends.decrementAndGet();
+            append.spilled().complete(false);
+        }
+        return append.spilled();
+    }
+
+    /**
+     * Appends a direct send Kafka rejected with a retriable error and settles it. The handler switches to
+     * spilling right away, while the append waits for the spill writer thread.
+     */
+    public CompletableFuture<Boolean> spillFailedSendAsync(UserActionProto proto, Durability durability) {
+        if (spillLog == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!spilling) {
+            log.warn("Kafka недоступна, события пишутся в spill-лог");
+            spilling = true;
+        }
+        CompletableFuture<Boolean> spilled = new CompletableFuture<>();
+        boolean submitted = submit(() -> {
+            try {
+                spilled.complete(spill(proto, durability));
+            } finally {
+                endDirectSend();
+            }
+        });
+        if (!submitted) {
+            endDirectSend();
+            spilled.complete(false);
+        }
+        return spilled;
+    }
+
+    private boolean submit(Runnable task) {
+        try {
+            writer.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void appendHeld() {
+        while (true) {
+            HeldAppend append;
+            synchronized (held) {
+                append = held.poll();
+            }
+            if (append == null) {
+                return;
+            }
+            append(append);
+        }
+    }
+
+    private void append(HeldAppend append) {
+        try {
+            append.spilled().complete(spill(append.proto(), append.durability()));
+        } finally {
+            queuedAppends.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (!spilling) {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                    continue;
+                }
+                drainBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Не удалось переотправить spill-лог, осталось {} событий: {}",
+                        spillLog.backlogEntries(), e.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RETRY_BACKOFF_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void drainBatch() throws Exception {
+        SpillLog.Batch batch = spillLog.read(DRAIN_BATCH_SIZE);
+        if (batch.payloads().isEmpty()) {
+            synchronized (lock) {
+                // appends happen under the same lock, so an empty read here with nothing about to be appended
+                // means the backlog is gone
+                if (directSends.get() == 0 && queuedAppends.get() == 0 && spillLog.read(1).payloads().isEmpty()) {
+                    spilling = false;
+                    log.info("Spill-лог переотправлен в Kafka");
+                }
+            }
+            return;
+        }
+
+        CompletableFuture<?>[] acks = new CompletableFuture<?>[batch.payloads().size()];
+        for (int i = 0; i < acks.length; i++) {
+            acks[i] = replay(batch.payloads().get(i));
+        }
+        CompletableFuture.allOf(acks).get(collectorSettingsConfig.getDeliveryTimeout().toMillis() * 2,
+                TimeUnit.MILLISECONDS);
+        spillLog.commit(batch);
+    }
+
+    private CompletableFuture<Void> replay(byte[] payload) throws InvalidProtocolBufferException {
+        Durability durability = durabilityOf(payload[0]);
+        if (durability == null) {
+            // written by a collector that knows a level this one doesn't: it can't be replayed as intended
+            log.error("Неизвестный уровень надёжности {} в spill-логе, событие пропущено", payload[0]);
+            return CompletableFuture.completedFuture(null);
+        }
+        UserActionProto proto = UserActionProto.parser().parseFrom(payload, 1, payload.length - 1);
+        Producer<String, SpecificRecordBase> target = durability == Durability.FULLY_SYNCED
+                ? producer
+                : leaderAckProducer;
+
+        CompletableFuture<Void> acked = new CompletableFuture<>();
+        target.send(new ProducerRecord<>(kafkaSettingsConfig.getTopic(), String.valueOf(proto.getUserId()),
+                UserActionMapper.mapToAvro(proto)), (metadata, exception) -> {
+            if (exception == null) {
+                acked.complete(null);
+            } else {
+                acked.completeExceptionally(exception);
+            }
+        });
+        return acked;
+    }
+
+    private static byte durabilityCode(Durability durability) {
+        return switch (durability) {
+            case LEADER_ACKED -> LEADER_ACKED_CODE;
+            case FULLY_SYNCED -> FULLY_SYNCED_CODE;
+            case FIRE_AND_FORGET -> throw new IllegalArgumentException("Fire-and-forget actions are never spilled");
+        };
+    }
+
+    private static Durability durabilityOf(byte code) {
+        return switch (code) {
+            case LEADER_ACKED_CODE -> Durability.LEADER_ACKED;
+            case FULLY_SYNCED_CODE -> Durability.FULLY_SYNCED;
+            default -> null;
+        };
+    }
+
+    @PostConstruct
+    public void start() {
+        if (spillLog == null) {
+            return;
+        }
+        drainer = new Thread(this);
+        drainer.setName("collector-spill-drainer");
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        running = false;
+        if (writer != null) {
+            writer.shutdown();
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+            synchronized (held) {
+                held.forEach(append -> append.spilled().complete(false));
+                held.clear();
+            }
+        }
+        if (drainer != null) {
+            drainer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (spillLog != null) {
+            spillLog.close();
+        }
+    }
+
+    private record HeldAppend(UserActionProto proto, Durability durability, CompletableFuture<Boolean> spilled) {
+    }
+}
@@ -0,0 +1,155 @@
+package ru.practicum.spill;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillLogTest {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int SEGMENT_SIZE = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsEntriesInOrderWithoutMovingTheCursor() throws IOException {
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            assertTrue(log.append(bytes("a"), false));
+            assertTrue(log.append(bytes("bb"), true));
+
+            assertEquals(List.of("a", "bb"), strings(log.read(10)));
+            assertEquals(List.of("a"), strings(log.read(1)));
+            assertEquals(2, log.backlogEntries());
+            assertEquals(2 * HEADER_SIZE + 3, log.backlogBytes());
+
+            log.commit(log.read(1));
+            assertEquals(List.of("bb"), strings(log.read(10)));
+            assertEquals(1, log.backlogEntries());
+        }
+    }
+
+    @Test
+    void rollsOverIntoNewSegmentsAndDeletesDrainedOnes() throws IOException {
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            // 8 + 20 bytes per entry, so two of them fill a 64 byte segment
+            for (int i = 0; i < 5; i++) {
+                assertTrue(log.append(bytes(String.format("entry-%014d", i)), false));
+            }
+            assertEquals(3, segmentFiles().size());
+            assertEquals(3 * SEGMENT_SIZE, log.sizeOnDisk());
+
+            SpillLog.Batch batch = log.read(3);
+            assertEquals(List.of(String.format("entry-%014d", 0), String.format("entry-%014d", 1),
+                    String.format("entry-%014d", 2)), strings(batch));
+            log.commit(batch);
+
+            assertEquals(2, segmentFiles().size());
+            assertEquals(2, log.backlogEntries());
+            log.commit(log.read(10));
+            assertEquals(1, segmentFiles().size());
+            assertEquals(0, log.read(10).payloads().size());
+        }
+    }
+
+    @Test
+    void refusesAppendsBeyondTheSizeLimit() throws IOException {
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 2 * SEGMENT_SIZE)) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(log.append(bytes(String.format("entry-%014d", i)), false));
+            }
+            assertFalse(log.append(bytes("x"), false));
+            assertEquals(4, log.backlogEntries());
+        }
+    }
+
+    @Test
+    void resumesFromTheCheckpointAndAppendsAfterReopen() throws IOException {
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            log.append(bytes("a"), false);
+            log.append(bytes("b"), false);
+            log.append(bytes("c"), false);
+            log.commit(log.read(2));
+        }
+        assertTrue(Files.exists(directory.resolve("spill.checkpoint")));
+        assertFalse(Files.exists(directory.resolve("spill.checkpoint.tmp")));
+
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            assertEquals(1, log.backlogEntries());
+            assertTrue(log.append(bytes("d"), true));
+            assertEquals(List.of("c", "d"), strings(log.read(10)));
+            log.commit(log.read(1));
+        }
+
+        // the checkpoint was replaced: only what came after the second commit is left
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            assertEquals(List.of("d"), strings(log.read(10)));
+        }
+    }
+
+    @Test
+    void replaysFromTheFirstSegmentWhenTheCheckpointIsCutShort() throws IOException {
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            log.append(bytes("a"), false);
+            log.append(bytes("b"), false);
+            log.commit(log.read(1));
+        }
+        Files.write(directory.resolve("spill.checkpoint"), new byte[3]);
+
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            assertEquals(List.of("a", "b"), strings(log.read(10)));
+            assertEquals(2, log.backlogEntries());
+        }
+    }
+
+    @Test
+    void endsTheLogAtATornEntryAndOverwritesIt() throws IOException {
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            log.append(bytes("first"), false);
+            log.append(bytes("second"), false);
+        }
+        // flip a payload byte of the second entry, as if the crash hit before its payload was on disk
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), HEADER_SIZE + 5 + HEADER_SIZE);
+        }
+
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            assertEquals(1, log.backlogEntries());
+            assertEquals(List.of("first"), strings(log.read(10)));
+
+            assertTrue(log.append(bytes("third"), false));
+            assertEquals(List.of("first", "third"), strings(log.read(10)));
+        }
+        try (SpillLog log = new SpillLog(directory, SEGMENT_SIZE, 1024)) {
+            assertEquals(List.of("first", "third"), strings(log.read(10)));
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> strings(SpillLog.Batch batch) {
+        return batch.payloads().stream().map(payload -> new String(payload, StandardCharsets.UTF_8)).toList();
+    }
+}
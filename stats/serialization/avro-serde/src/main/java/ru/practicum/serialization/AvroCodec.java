@@ -0,0 +1,88 @@
+package ru.practicum.serialization;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecordBase;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binary Avro encoding of one record type. Codecs are cached per schema, and the datum writer and reader are
+ * built once and shared: both are thread-safe. The encoder, decoder and output buffer are kept per thread,
+ * so encoding a message allocates only the resulting byte array and decoding allocates only the record,
+ * or nothing when the caller passes an instance to reuse.
+ */
+public final class AvroCodec<T extends SpecificRecordBase> {
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ConcurrentMap<Schema, AvroCodec<?>> CODECS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<ThreadState> THREAD_STATE = ThreadLocal.withInitial(ThreadState::new);
+
+    private final Schema schema;
+    private final DatumWriter<T> writer;
+    private final DatumReader<T> reader;
+
+    private AvroCodec(Schema schema) {
+        this.schema = schema;
+        this.writer = new SpecificDatumWriter<>(schema);
+        this.reader = new SpecificDatumReader<>(schema);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T extends SpecificRecordBase> AvroCodec<T> forSchema(Schema schema) {
+        return (AvroCodec<T>) CODECS.computeIfAbsent(schema, AvroCodec::new);
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public byte[] encode(T record) throws IOException {
+        ThreadState state = THREAD_STATE.get();
+        ReusableByteArrayOutputStream out = state.out;
+        try {
+            state.encoder = EncoderFactory.get().binaryEncoder(out, state.encoder);
+            writer.write(record, state.encoder);
+            state.encoder.flush();
+            return out.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            // a failed write leaves part of the record in the encoder's buffer, which would lead the next message
+            state.encoder = null;
+            throw e;
+        } finally {
+            out.reset(MAX_RETAINED_BUFFER_SIZE);
+        }
+    }
+
+    public T decode(byte[] data) throws IOException {
+        return decode(data, 0, data.length, null);
+    }
+
+    /**
+     * Decodes into {@code reuse} when it is not null. Only pass an instance whose previous contents are no
+     * longer referenced: a Kafka deserializer must not reuse records, since a whole fetch is decoded before
+     * the application sees any of it.
+     */
+    public T decode(byte[] data, int offset, int length, T reuse) throws IOException {
+        ThreadState state = THREAD_STATE.get();
+        state.decoder = DecoderFactory.get().binaryDecoder(data, offset, length, state.decoder);
+        return reader.read(reuse, state.decoder);
+    }
+
+    private static final class ThreadState {
+        private final ReusableByteArrayOutputStream out = new ReusableByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        private BinaryEncoder encoder;
+        private BinaryDecoder decoder;
+    }
+}
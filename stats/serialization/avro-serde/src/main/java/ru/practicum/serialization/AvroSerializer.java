@@ -0,0 +1,24 @@
+package ru.practicum.serialization;
+
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+
+public class AvroSerializer implements Serializer<SpecificRecordBase> {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    @Override
+    public byte[] serialize(String topic, SpecificRecordBase data) {
+        if (data == null) {
+            return EMPTY;
+        }
+        try {
+            return AvroCodec.forSchema(data.getSchema()).encode(data);
+        } catch (IOException ex) {
+            throw new SerializationException("Data serialization error for topic: [" + topic + "]", ex);
+        }
+    }
+}
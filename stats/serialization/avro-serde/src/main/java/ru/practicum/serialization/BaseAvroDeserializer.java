@@ -1,10 +1,6 @@
 package ru.practicum.serialization;
 
 import org.apache.avro.Schema;
-import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.Decoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Deserializer;
@@ -13,16 +9,10 @@ import java.io.IOException;
 
 public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deserializer<T> {
 
-    private final DecoderFactory decoderFactory;
-    private final Schema schema;
+    private final AvroCodec<T> codec;
 
     public BaseAvroDeserializer(Schema schema) {
-        this(DecoderFactory.get(), schema);
-    }
-
-    public BaseAvroDeserializer(DecoderFactory decoderFactory, Schema schema) {
-        this.decoderFactory = decoderFactory;
-        this.schema = schema;
+        this.codec = AvroCodec.forSchema(schema);
     }
 
     @Override
@@ -31,11 +21,9 @@ public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deser
             return null;
         }
         try {
-            DatumReader<T> datumReader = new SpecificDatumReader<>(schema);
-            Decoder decoder = decoderFactory.binaryDecoder(data, null);
-            return datumReader.read(null, decoder);
+            return codec.decode(data);
         } catch (IOException e) {
-            throw new SerializationException("Error deserializing avro ", e);
+            throw new SerializationException("Error deserializing avro message from topic: [" + topic + "]", e);
         }
     }
 
@@ -0,0 +1,51 @@
+package ru.practicum.serialization;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Unsynchronized byte sink that is reset between messages instead of being reallocated.
+ */
+final class ReusableByteArrayOutputStream extends OutputStream {
+
+    private byte[] buffer;
+    private int count;
+
+    ReusableByteArrayOutputStream(int initialCapacity) {
+        buffer = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Forgets the written bytes. A buffer that grew past {@code maxRetained} for an unusually large
+     * message is dropped, so one outlier does not pin memory in every producing thread.
+     */
+    void reset(int maxRetained) {
+        count = 0;
+        if (buffer.length > maxRetained) {
+            buffer = new byte[maxRetained];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length << 1));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum.serialization;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.avro.ActionTypeAvro;
+import ru.practicum.ewm.stats.avro.UserActionAvro;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AvroCodecTest {
+
+    private final AvroCodec<UserActionAvro> codec = AvroCodec.forSchema(UserActionAvro.getClassSchema());
+
+    @Test
+    void roundTripsARecord() throws Exception {
+        UserActionAvro action = action(1L);
+
+        assertEquals(action, codec.decode(codec.encode(action)));
+    }
+
+    @Test
+    void encodesCleanlyAfterAFailedEncode() throws Exception {
+        UserActionAvro valid = action(7L);
+        byte[] expected = codec.encode(valid);
+        // the ids are written before the missing action type fails the record
+        UserActionAvro broken = new UserActionAvro();
+        broken.setUserId(Long.MAX_VALUE);
+        broken.setEventId(Long.MAX_VALUE);
+
+        assertThrows(RuntimeException.class, () -> codec.encode(broken));
+        byte[] encoded = codec.encode(valid);
+
+        assertArrayEquals(expected, encoded);
+        assertEquals(valid, codec.decode(encoded));
+    }
+
+    private static UserActionAvro action(long userId) {
+        return UserActionAvro.newBuilder()
+                .setUserId(userId)
+                .setEventId(2L)
+                .setActionType(ActionTypeAvro.LIKE)
+                .setTimestamp(Instant.ofEpochMilli(1_700_000_000_000L))
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.statsclient.client;
 
 import com.google.common.collect.Lists;
+import io.grpc.Context;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.springframework.stereotype.Component;
 import ru.practicum.ewm.stats.proto.InteractionsCountRequestProto;
@@ -8,9 +9,13 @@ import ru.practicum.ewm.stats.proto.RecommendationsControllerGrpc;
 import ru.practicum.ewm.stats.proto.RecommendedEventProto;
 import ru.practicum.ewm.stats.proto.SimilarEventsRequestProto;
 import ru.practicum.ewm.stats.proto.UserPredictionsRequestProto;
-
+import ru.practicum.ewm.stats.proto.UserRecommendationsProto;
+import ru.practicum.ewm.stats.proto.UsersPredictionsRequestProto;
 
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Component
 public class AnalyzerClient {
@@ -29,4 +34,44 @@ public class AnalyzerClient {
     public List<RecommendedEventProto> getRecommendationsForUser(UserPredictionsRequestProto request) {
         return Lists.newArrayList(client.getRecommendationsForUser(request));
     }
+
+    /**
+     * Same as {@link #getRecommendationsForUser}, but items are read from the wire as the stream is consumed.
+     * Closing the stream early cancels the call, so the analyzer stops producing the rest.
+     */
+    public Stream<RecommendedEventProto> streamRecommendationsForUser(UserPredictionsRequestProto request) {
+        return stream(() -> client.getRecommendationsForUser(request));
+    }
+
+    /**
+     * Recommendations of many users in one call, one entry per user; meant for precomputation jobs.
+     */
+    public Stream<UserRecommendationsProto> streamRecommendationsForUsers(UsersPredictionsRequestProto request) {
+        return stream(() -> client.getRecommendationsForUsers(request));
+    }
+
+    public Stream<RecommendedEventProto> streamSimilarEvents(SimilarEventsRequestProto request) {
+        return stream(() -> client.getSimilarEvents(request));
+    }
+
+    public Stream<RecommendedEventProto> streamInteractionsCount(InteractionsCountRequestProto request) {
+        return stream(() -> client.getInteractionsCount(request));
+    }
+
+    // the blocking stub binds the call to the current context, cancelling that context cancels the call
+    private static <T> Stream<T> stream(Supplier<Iterator<T>> call) {
+        Context.CancellableContext context = Context.current().withCancellation();
+        Context previous = context.attach();
+        Iterator<T> results;
+        try {
+            results = call.get();
+        } catch (RuntimeException e) {
+            context.cancel(e);
+            throw e;
+        } finally {
+            context.detach(previous);
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED), false)
+                .onClose(() -> context.cancel(null));
+    }
 }
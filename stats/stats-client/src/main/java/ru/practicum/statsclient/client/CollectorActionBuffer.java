@@ -0,0 +1,219 @@
+package ru.practicum.statsclient.client;
+
+import com.google.protobuf.Empty;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.proto.UserActionBatchProto;
+import ru.practicum.ewm.stats.proto.UserActionControllerGrpc;
+import ru.practicum.ewm.stats.proto.UserActionProto;
+import ru.practicum.statsclient.config.CollectorClientSettingsConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process buffer between request threads and the collector. Recording an action is a queue offer; a single
+ * flusher thread sends whatever has piled up as one batch call once the batch is full or the flush interval has
+ * passed since its first action. Only a few batches may be in flight, so a slow collector fills the buffer and
+ * the overflow policy decides what happens to new actions.
+ */
+@Slf4j
+@Component
+public class CollectorActionBuffer implements Runnable {
+
+    private static final long DROP_LOG_INTERVAL = 10_000;
+    private static final Set<Status.Code> RETRIABLE_CODES =
+            Set.of(Status.Code.UNAVAILABLE, Status.Code.DEADLINE_EXCEEDED, Status.Code.RESOURCE_EXHAUSTED);
+
+    @GrpcClient("collector")
+    private UserActionControllerGrpc.UserActionControllerStub client;
+
+    private final CollectorClientSettingsConfig settingsConfig;
+    private final BlockingQueue<UserActionProto> queue;
+    private final Semaphore inFlight;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile long pausedUntil;
+    private Thread flusher;
+
+    public CollectorActionBuffer(CollectorClientSettingsConfig settingsConfig, MeterRegistry meterRegistry) {
+        this.settingsConfig = settingsConfig;
+        this.queue = new ArrayBlockingQueue<>(settingsConfig.getBufferCapacity());
+        this.inFlight = new Semaphore(settingsConfig.getMaxInFlightBatches());
+        meterRegistry.more().counter("stats.client.collector.dropped", Tags.of("reason", "overflow"), dropped);
+        meterRegistry.more().counter("stats.client.collector.dropped", Tags.of("reason", "send-failed"), failed);
+        meterRegistry.gauge("stats.client.collector.buffered", queue, BlockingQueue::size);
+    }
+
+    /**
+     * Returns false when the action was dropped.
+     */
+    public boolean offer(UserActionProto action) {
+        if (running && (queue.offer(action) || offerOnOverflow(action))) {
+            return true;
+        }
+        long total = dropped.incrementAndGet();
+        if (total % DROP_LOG_INTERVAL == 1) {
+            log.warn("Буфер действий для коллектора переполнен, отброшено: {}", total);
+        }
+        return false;
+    }
+
+    private boolean offerOnOverflow(UserActionProto action) {
+        if (settingsConfig.getSheddableActions().contains(action.getActionType())) {
+            return false;
+        }
+        return switch (settingsConfig.getOverflowPolicy()) {
+            case DROP_NEWEST -> false;
+            case DROP_OLDEST -> {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+                yield queue.offer(action);
+            }
+            case BLOCK -> {
+                try {
+                    yield queue.offer(action, settingsConfig.getMaxBlock().toNanos(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    yield false;
+                }
+            }
+        };
+    }
+
+    @Override
+    public void run() {
+        int batchSize = settingsConfig.getBatchSize();
+        long flushIntervalNanos = settingsConfig.getFlushInterval().toNanos();
+        try {
+            while (running || !queue.isEmpty()) {
+                UserActionProto first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<UserActionProto> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    UserActionProto next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                send(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Ошибка отправителя действий в коллектор: {}", e.getMessage(), e);
+        }
+    }
+
+    private void send(List<UserActionProto> batch) throws InterruptedException {
+        long pause = pausedUntil - System.nanoTime();
+        if (pause > 0 && running) {
+            TimeUnit.NANOSECONDS.sleep(pause);
+        }
+        inFlight.acquire();
+        // the stub may both throw and report the cancelled call to the observer; the first of them settles the batch
+        AtomicBoolean settled = new AtomicBoolean();
+        try {
+            UserActionBatchProto request = UserActionBatchProto.newBuilder().addAllActions(batch).build();
+            client.withDeadlineAfter(settingsConfig.getCallDeadline().toMillis(), TimeUnit.MILLISECONDS)
+                    .collectUserActionBatch(request, new StreamObserver<>() {
+                        @Override
+                        public void onNext(Empty value) {
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            if (settled.compareAndSet(false, true)) {
+                                inFlight.release();
+                                onBatchFailed(batch, Status.fromThrowable(t));
+                            }
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                            if (settled.compareAndSet(false, true)) {
+                                inFlight.release();
+                            }
+                        }
+                    });
+        } catch (RuntimeException e) {
+            if (settled.compareAndSet(false, true)) {
+                inFlight.release();
+                onBatchFailed(batch, Status.fromThrowable(e));
+            }
+        }
+    }
+
+    private void onBatchFailed(List<UserActionProto> batch, Status status) {
+        int requeued = 0;
+        if (running && RETRIABLE_CODES.contains(status.getCode())) {
+            // back into the buffer without waiting; whatever no longer fits is lost
+            pausedUntil = System.nanoTime() + settingsConfig.getRetryBackoff().toNanos();
+            for (UserActionProto action : batch) {
+                if (!queue.offer(action)) {
+                    break;
+                }
+                requeued++;
+            }
+        }
+        int lost = batch.size() - requeued;
+        failed.addAndGet(lost);
+        log.warn("Не удалось отправить пакет действий в коллектор: {}, повторно поставлено {}, потеряно {}",
+                status.getCode(), requeued, lost);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!settingsConfig.isAsync()) {
+            running = false;
+            return;
+        }
+        flusher = new Thread(this);
+        flusher.setName("stats-client-collector-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        long deadline = System.nanoTime() + settingsConfig.getShutdownTimeout().toNanos();
+        flusher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        // wait for the batches still on the wire
+        boolean completed = inFlight.tryAcquire(settingsConfig.getMaxInFlightBatches(),
+                Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        log.info("Буфер действий для коллектора остановлен: отброшено {}, потеряно при отправке {}, "
+                        + "не отправлено {}, ответы получены: {}",
+                dropped.get(), failed.get(), queue.size(), completed);
+    }
+}
@@ -1,24 +1,51 @@
 package ru.practicum.statsclient.client;
 
 import com.google.protobuf.Timestamp;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.springframework.stereotype.Component;
 import ru.practicum.ewm.stats.proto.ActionTypeProto;
+import ru.practicum.ewm.stats.proto.UserActionBatchProto;
 import ru.practicum.ewm.stats.proto.UserActionControllerGrpc;
 import ru.practicum.ewm.stats.proto.UserActionProto;
+import ru.practicum.statsclient.config.CollectorClientSettingsConfig;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * In async mode (the default) actions go to {@link CollectorActionBuffer} and the calling thread never waits
+ * for the collector; an action that can't be buffered is dropped. In sync mode every action is a blocking call.
+ */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class CollectorClient {
 
     @GrpcClient("collector")
     private UserActionControllerGrpc.UserActionControllerBlockingStub client;
 
+    private final CollectorClientSettingsConfig settingsConfig;
+    private final CollectorActionBuffer buffer;
+
     public void sendUserAction(UserActionProto action) {
-        client.collectUserAction(action);
+        if (!settingsConfig.isAsync()) {
+            client.collectUserAction(action);
+        } else if (!buffer.offer(action)) {
+            log.debug("Действие {} пользователя {} для события {} не отправлено: буфер переполнен",
+                    action.getActionType(), action.getUserId(), action.getEventId());
+        }
+    }
+
+    /**
+     * Blocks until the collector has accepted the whole batch, whatever the mode; for callers that keep
+     * the actions until they are acknowledged.
+     */
+    public void sendUserActionBatch(List<UserActionProto> actions) {
+        client.withDeadlineAfter(settingsConfig.getCallDeadline().toMillis(), TimeUnit.MILLISECONDS)
+                .collectUserActionBatch(UserActionBatchProto.newBuilder().addAllActions(actions).build());
     }
 
     public void sendViewAction(Long userId, Long eventId) {
@@ -34,16 +61,17 @@ public class CollectorClient {
     }
 
     private void sendAction(Long userId, Long eventId, ActionTypeProto actionType) {
+        Instant now = Instant.now();
         UserActionProto action = UserActionProto.newBuilder()
                 .setUserId(userId)
                 .setEventId(eventId)
                 .setActionType(actionType)
                 .setTimestamp(Timestamp.newBuilder()
-                        .setSeconds(Instant.now().getEpochSecond())
-                        .setNanos(Instant.now().getNano())
+                        .setSeconds(now.getEpochSecond())
+                        .setNanos(now.getNano())
                         .build())
                 .build();
 
-        client.collectUserAction(action);
+        sendUserAction(action);
     }
-}
\ No newline at end of file
+}
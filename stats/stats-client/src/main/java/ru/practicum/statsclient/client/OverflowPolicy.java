@@ -0,0 +1,13 @@
+package ru.practicum.statsclient.client;
+
+/**
+ * What the async collector client does with a new action when its buffer is full.
+ */
+public enum OverflowPolicy {
+    // the new action is dropped
+    DROP_NEWEST,
+    // the oldest buffered action is dropped to make room
+    DROP_OLDEST,
+    // the caller waits up to max-block for space, then the action is dropped
+    BLOCK
+}
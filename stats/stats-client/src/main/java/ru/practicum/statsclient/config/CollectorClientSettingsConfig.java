@@ -0,0 +1,35 @@
+package ru.practicum.statsclient.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.practicum.ewm.stats.proto.ActionTypeProto;
+import ru.practicum.statsclient.client.OverflowPolicy;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties(prefix = "stats-client.collector")
+public class CollectorClientSettingsConfig {
+    // actions are buffered in-process and sent in batches; false sends every action with a blocking call
+    private boolean async = true;
+    private int bufferCapacity = 10_000;
+    private int batchSize = 200;
+    private Duration flushInterval = Duration.ofMillis(50);
+    // batches on the wire at once; when the collector is slow the buffer fills up instead
+    private int maxInFlightBatches = 4;
+    private Duration callDeadline = Duration.ofSeconds(5);
+    // pause before the next batch after the collector was unreachable
+    private Duration retryBackoff = Duration.ofSeconds(1);
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    // upper bound on how long a request thread waits for buffer space under BLOCK
+    private Duration maxBlock = Duration.ofMillis(5);
+    // actions dropped right away when the buffer is full, whatever the overflow policy
+    private Set<ActionTypeProto> sheddableActions = EnumSet.of(ActionTypeProto.ACTION_VIEW);
+    private Duration shutdownTimeout = Duration.ofSeconds(5);
+}
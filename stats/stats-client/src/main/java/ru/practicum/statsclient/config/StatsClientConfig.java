@@ -0,0 +1,9 @@
+package ru.practicum.statsclient.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CollectorClientSettingsConfig.class)
+public class StatsClientConfig {
+}